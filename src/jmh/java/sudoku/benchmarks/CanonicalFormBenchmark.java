@@ -0,0 +1,53 @@
+package sudoku.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sudoku.logic.CompactSudoku;
+import sudoku.logic.symmetry.Canonicalizer;
+
+/**
+ * canonical form of a fixed corpus of puzzles, the cost of deduplicating a
+ * generated puzzle
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CanonicalFormBenchmark {
+
+	@Param({ "easy", "hard", "seventeen" })
+	private String puzzle;
+
+	private final Canonicalizer canonicalizer = new Canonicalizer();
+	private final int[] cells = new int[CompactSudoku.CELLS];
+	private final int[] canonical = new int[CompactSudoku.CELLS];
+
+	@Setup
+	public void setUp() {
+		CompactSudoku compact = Corpus.get(puzzle);
+		for (int i = 0; i < CompactSudoku.CELLS; i++) {
+			cells[i] = compact.getValue(i);
+		}
+	}
+
+	@Benchmark
+	public int[] canonicalize() {
+		canonicalizer.canonicalize(cells, canonical);
+		return canonical;
+	}
+
+}
@@ -0,0 +1,97 @@
+package sudoku.benchmarks;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import controllers.IndexController;
+import sudoku.logic.Game;
+import sudoku.logic.SudokuCodec;
+import sudoku.logic.SudokuManager;
+import sudoku.logic.pool.PuzzlePool;
+import sudoku.logic.tokens.GameTokens;
+
+/**
+ * json round-trips of the controller handlers: the request body is parsed and
+ * the response serialized with the shared mapper, as the message converter
+ * does. The cell check reads the solution from a game token, signature and
+ * decryption included
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControllerJsonBenchmark {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private IndexController controller;
+	private String solution;
+	private String matrixJson;
+	private String token;
+
+	@Setup
+	public void setUp() throws Exception {
+		SudokuManager manager = new SudokuManager();
+		controller = new IndexController();
+		this.inject("manager", manager);
+		this.inject("pool", new PuzzlePool(manager));
+		this.inject("objectMapper", mapper);
+		GameTokens tokens = new GameTokens();
+		tokens.init();
+		this.inject("tokens", tokens);
+
+		Game game = manager.makeGame(33);
+		solution = SudokuCodec.encode(game.getSolution());
+		matrixJson = mapper.writeValueAsString(SudokuCodec.decode(solution).toArray());
+		token = tokens.issue(solution, game.getPuzzle().toArray());
+	}
+
+	@Benchmark
+	public byte[] checkCorrectAnswers() throws Exception {
+		return mapper
+				.writeValueAsBytes(controller.checkCorrectAnswers(null, mapper.readValue(matrixJson, int[][].class)));
+	}
+
+	@Benchmark
+	public byte[] checkCorrectAnswersToken() throws Exception {
+		return mapper
+				.writeValueAsBytes(controller.checkCorrectAnswers(token, mapper.readValue(matrixJson, int[][].class)));
+	}
+
+	@Benchmark
+	public byte[] checkCell() throws Exception {
+		return mapper.writeValueAsBytes(controller.checkCell(token, null, mapper.readValue("[4,4,5]", int[].class)));
+	}
+
+	@Benchmark
+	public byte[] solvePuzzle() throws Exception {
+		return mapper.writeValueAsBytes(controller.solution(solution, null));
+	}
+
+	@Benchmark
+	public byte[] solvePuzzleCompact() throws Exception {
+		return mapper.writeValueAsBytes(controller.solution(solution, "compact"));
+	}
+
+	private void inject(final String name, final Object value) throws Exception {
+		Field field = IndexController.class.getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(controller, value);
+	}
+
+}
@@ -0,0 +1,32 @@
+package sudoku.benchmarks;
+
+import sudoku.logic.CompactSudoku;
+import sudoku.logic.SudokuCodec;
+
+/**
+ * fixed puzzles used by the benchmarks, all with a unique solution
+ */
+public final class Corpus {
+
+	public static final String EASY = "003020600900305001001806400008102900700000008006708200002609500800203009005010300";
+	public static final String HARD = "800000000003600000070090200050007000000045700000100030001000068008500010090000400";
+	// 17 givens, the minimum for a unique solution
+	public static final String SEVENTEEN = "000000010400000000020000000000050407008000300001090000300400200050100000000806000";
+
+	private Corpus() {
+	}
+
+	public static CompactSudoku get(final String name) {
+		if ("easy".equals(name)) {
+			return SudokuCodec.decode(EASY, true);
+		}
+		if ("hard".equals(name)) {
+			return SudokuCodec.decode(HARD, true);
+		}
+		if ("seventeen".equals(name)) {
+			return SudokuCodec.decode(SEVENTEEN, true);
+		}
+		throw new IllegalArgumentException("unknown puzzle " + name);
+	}
+
+}
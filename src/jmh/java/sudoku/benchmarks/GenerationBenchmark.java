@@ -0,0 +1,58 @@
+package sudoku.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sudoku.logic.Sudoku;
+import sudoku.logic.SudokuManager;
+import sudoku.logic.solvers.DancingLinksSolver;
+
+/**
+ * generation of filled Sudokus and dig-out of puzzles
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerationBenchmark {
+
+	@Param({ "24", "33", "45" })
+	private int givens;
+
+	@Param({ "false", "true" })
+	private boolean unique;
+
+	private SudokuManager manager;
+	private Sudoku template;
+
+	@Setup
+	public void setUp() {
+		manager = new SudokuManager();
+		manager.setSolver(new DancingLinksSolver());
+		template = manager.generateSudoku();
+	}
+
+	@Benchmark
+	public Sudoku generateSudoku() {
+		return manager.generateSudoku();
+	}
+
+	@Benchmark
+	public Sudoku puzzle() {
+		return manager.puzzle(template, givens, unique);
+	}
+
+}
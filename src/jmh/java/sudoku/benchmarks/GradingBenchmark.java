@@ -0,0 +1,50 @@
+package sudoku.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sudoku.logic.CompactSudoku;
+import sudoku.logic.SudokuManager;
+import sudoku.logic.grading.Technique;
+
+/**
+ * grading of a fixed corpus of puzzles with the logical solver, it runs inline
+ * on every generated game so it must stay in the tens of microseconds
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GradingBenchmark {
+
+	@Param({ "easy", "hard", "seventeen" })
+	private String puzzle;
+
+	private SudokuManager manager;
+	private CompactSudoku compact;
+
+	@Setup
+	public void setUp() {
+		manager = new SudokuManager();
+		compact = Corpus.get(puzzle);
+	}
+
+	@Benchmark
+	public Technique grade() {
+		return manager.grade(compact);
+	}
+
+}
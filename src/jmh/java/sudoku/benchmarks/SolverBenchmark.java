@@ -0,0 +1,67 @@
+package sudoku.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sudoku.logic.CompactSudoku;
+import sudoku.logic.Sudoku;
+import sudoku.logic.SudokuManager;
+import sudoku.logic.solvers.BacktrackingSolver;
+import sudoku.logic.solvers.DancingLinksSolver;
+
+/**
+ * solving and solution counting of a fixed corpus of puzzles with every
+ * solver backend. The backtracking solver takes seconds on the 17 givens
+ * puzzle, filter it out with -p solver=dlx if needed
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+
+	@Param({ "dlx", "backtracking" })
+	private String solver;
+
+	@Param({ "easy", "hard", "seventeen" })
+	private String puzzle;
+
+	private SudokuManager manager;
+	private CompactSudoku compact;
+	private Sudoku sudoku;
+
+	@Setup
+	public void setUp() {
+		manager = new SudokuManager();
+		manager.setSolver("dlx".equals(solver) ? new DancingLinksSolver() : new BacktrackingSolver());
+		compact = Corpus.get(puzzle);
+		sudoku = compact.toSudoku();
+	}
+
+	@Benchmark
+	public Sudoku solve() {
+		// solving fills the puzzle, so every invocation works on a new copy
+		Sudoku copy = compact.toSudoku();
+		manager.solve(copy);
+		return copy;
+	}
+
+	@Benchmark
+	public int countSolutions() {
+		return manager.countSolutions(sudoku, 2);
+	}
+
+}
@@ -0,0 +1,74 @@
+package sudoku.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sudoku.logic.Sudoku;
+import sudoku.logic.SudokuManager;
+import sudoku.logic.ValidationResult;
+import sudoku.logic.exceptions.ConstraintViolationException;
+
+/**
+ * validation of valid and invalid boards through the exception, result object
+ * and primitive code paths
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+	@Param({ "true", "false" })
+	private boolean valid;
+
+	private SudokuManager manager;
+	private int[][] matrix;
+	private Sudoku sudoku;
+
+	@Setup
+	public void setUp() {
+		manager = new SudokuManager();
+		matrix = manager.generateSudoku().toArray();
+		if (!valid) {
+			// swapping two cells of a row breaks two columns
+			int swap = matrix[8][0];
+			matrix[8][0] = matrix[8][1];
+			matrix[8][1] = swap;
+		}
+		sudoku = new Sudoku(matrix);
+	}
+
+	@Benchmark
+	public boolean checkValidAnswers() {
+		try {
+			manager.checkValidAnswers(sudoku);
+			return true;
+		} catch (ConstraintViolationException e) {
+			return false;
+		}
+	}
+
+	@Benchmark
+	public ValidationResult validateAnswers() {
+		return manager.validateAnswers(sudoku, true);
+	}
+
+	@Benchmark
+	public int findViolatedUnit() {
+		return manager.findViolatedUnit(matrix);
+	}
+
+}
@@ -0,0 +1,83 @@
+package controllers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import javax.servlet.ServletContext;
+import org.springframework.web.context.ServletContextAware;
+
+/**
+ * AssetManifest maps the path of every static asset to its fingerprinted
+ * path, read from the manifest WEB-INF/assets.properties written by
+ * BuildAssets. The page writes the urls of its assets through urls, exposed
+ * to the views as the bean "assets": ${assets.urls['js/scripts.js']}. An
+ * asset missing from the manifest, or every asset when the war has been built
+ * without it, keeps its own path
+ */
+public class AssetManifest implements ServletContextAware {
+
+	public static final String LOCATION = "/WEB-INF/assets.properties";
+
+	private Map<String, String> urls = withDefault(new HashMap<String, String>());
+	// file names of the fingerprinted assets
+	private Set<String> fingerprinted = Collections.emptySet();
+
+	@Override
+	public void setServletContext(ServletContext servletContext) {
+
+		Properties manifest = new Properties();
+		try (InputStream in = servletContext.getResourceAsStream(LOCATION)) {
+			if (in == null) {
+				return;
+			}
+			manifest.load(in);
+		} catch (IOException e) {
+			throw new IllegalStateException("cannot read " + LOCATION, e);
+		}
+
+		Map<String, String> paths = new HashMap<String, String>();
+		Set<String> names = new HashSet<String>();
+		for (String path : manifest.stringPropertyNames()) {
+			String target = manifest.getProperty(path);
+			paths.put(path, target);
+			names.add(target.substring(target.lastIndexOf('/') + 1));
+		}
+
+		urls = withDefault(paths);
+		fingerprinted = Collections.unmodifiableSet(names);
+	}
+
+	/**
+	 * wraps the paths in a map where a path missing maps to itself
+	 */
+	private static Map<String, String> withDefault(final Map<String, String> paths) {
+		return Collections.unmodifiableMap(new HashMap<String, String>(paths) {
+			@Override
+			public String get(Object path) {
+				String target = super.get(path);
+				return target != null ? target : (String) path;
+			}
+		});
+	}
+
+	/**
+	 * gets the fingerprinted paths by asset path, relative to the context
+	 */
+	public Map<String, String> getUrls() {
+		return urls;
+	}
+
+	/**
+	 * tells whether a file name is the one of a fingerprinted asset, whose
+	 * content never changes
+	 */
+	public boolean isFingerprinted(String filename) {
+		return fingerprinted.contains(filename);
+	}
+
+}
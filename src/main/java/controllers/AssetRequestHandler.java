@@ -0,0 +1,156 @@
+package controllers;
+
+import java.io.IOException;
+import java.util.Locale;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
+
+/**
+ * AssetRequestHandler serves the static assets like mvc:resources, with two
+ * additions for the fingerprinted assets written by BuildAssets: they are
+ * cached for a year as immutable, since a new content gets a new name, and
+ * the copy precompressed with gzip is sent to the clients accepting it, so
+ * nothing is compressed on the fly. Responses for an asset having a
+ * compressed copy vary on Accept-Encoding, whichever copy is sent.
+ *
+ * The assets are served by the application so that it runs standalone, in
+ * production the default servlet of the container or a CDN should serve them
+ */
+public class AssetRequestHandler extends ResourceHttpRequestHandler {
+
+	private static final String GZIP_SUFFIX = ".gz";
+	private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+	private AssetManifest manifest;
+
+	@Override
+	protected Resource getResource(HttpServletRequest request) {
+
+		Resource resource = super.getResource(request);
+		if (resource == null || !this.acceptsGzip(request)) {
+			return resource;
+		}
+
+		try {
+			Resource gzipped = resource.createRelative(resource.getFilename() + GZIP_SUFFIX);
+			if (gzipped.exists() && gzipped.isReadable()) {
+				return gzipped;
+			}
+		} catch (IOException e) {
+			// no precompressed copy, the asset is sent as it is
+		}
+		return resource;
+	}
+
+	@Override
+	protected MediaType getMediaType(Resource resource) {
+
+		if (!isGzipped(resource)) {
+			return super.getMediaType(resource);
+		}
+		// the type of the asset, not of the archive
+		String mimeType = getServletContext().getMimeType(originalName(resource));
+		return StringUtils.hasText(mimeType) ? MediaType.parseMediaType(mimeType) : null;
+	}
+
+	@Override
+	protected void setHeaders(HttpServletResponse response, Resource resource, MediaType mediaType)
+			throws IOException {
+
+		super.setHeaders(response, resource, mediaType);
+
+		if (isGzipped(resource)) {
+			response.setHeader("Content-Encoding", "gzip");
+		}
+		// caches must not hand the copy sent to one client to another one
+		// accepting other encodings
+		if (isGzipped(resource) || hasGzippedCopy(resource)) {
+			response.setHeader("Vary", "Accept-Encoding");
+		}
+		if (manifest != null && manifest.isFingerprinted(originalName(resource))) {
+			response.setHeader("Cache-Control", IMMUTABLE);
+		}
+	}
+
+	/**
+	 * tells whether the request accepts gzip with a non zero quality, listed
+	 * by name or through *, e.g. not for "gzip;q=0" or "*, gzip;q=0"
+	 */
+	boolean acceptsGzip(HttpServletRequest request) {
+		String acceptEncoding = request.getHeader("Accept-Encoding");
+		if (acceptEncoding == null) {
+			return false;
+		}
+
+		// quality of gzip and of *, -1 if not listed
+		double gzip = -1, any = -1;
+		for (String coding : StringUtils.tokenizeToStringArray(acceptEncoding, ",")) {
+			String[] parts = StringUtils.tokenizeToStringArray(coding, ";");
+			if (parts.length == 0) {
+				continue;
+			}
+			String name = parts[0].toLowerCase(Locale.ENGLISH);
+			double quality = quality(parts);
+			if ("gzip".equals(name) || "x-gzip".equals(name)) {
+				gzip = Math.max(gzip, quality);
+			} else if ("*".equals(name)) {
+				any = quality;
+			}
+		}
+		return gzip >= 0 ? gzip > 0 : any > 0;
+	}
+
+	/**
+	 * gets the q parameter of a coding split on ';', 1 if it is missing and
+	 * 0 if it is malformed
+	 */
+	private static double quality(String[] parts) {
+		for (int i = 1; i < parts.length; i++) {
+			String parameter = parts[i];
+			int equals = parameter.indexOf('=');
+			if (equals > 0 && "q".equalsIgnoreCase(parameter.substring(0, equals).trim())) {
+				try {
+					return Double.parseDouble(parameter.substring(equals + 1).trim());
+				} catch (NumberFormatException e) {
+					return 0;
+				}
+			}
+		}
+		return 1;
+	}
+
+	private static boolean hasGzippedCopy(Resource resource) {
+		try {
+			Resource gzipped = resource.createRelative(resource.getFilename() + GZIP_SUFFIX);
+			return gzipped.exists() && gzipped.isReadable();
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static boolean isGzipped(Resource resource) {
+		return resource.getFilename().endsWith(GZIP_SUFFIX);
+	}
+
+	/**
+	 * gets the file name of an asset without the suffix of its compressed
+	 * copy
+	 */
+	private static String originalName(Resource resource) {
+		String filename = resource.getFilename();
+		return isGzipped(resource) ? filename.substring(0, filename.length() - GZIP_SUFFIX.length()) : filename;
+	}
+
+	public AssetManifest getManifest() {
+		return manifest;
+	}
+
+	public void setManifest(AssetManifest manifest) {
+		this.manifest = manifest;
+	}
+
+}
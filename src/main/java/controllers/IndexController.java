@@ -1,141 +1,642 @@
 package controllers;
 
-import java.io.StringWriter;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
-import org.springframework.ui.ModelMap;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.HttpSessionRequiredException;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.SessionAttributes;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.ModelAndView;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import sudoku.logic.Cell;
+import controllers.responses.CellResponse;
+import controllers.responses.CellsResponse;
+import controllers.responses.HintResponse;
+import controllers.responses.MatrixResponse;
+import controllers.responses.ResultResponse;
+import sudoku.logic.Game;
+import sudoku.logic.PlayerBoard;
 import sudoku.logic.Sudoku;
+import sudoku.logic.SudokuCodec;
 import sudoku.logic.SudokuManager;
-import sudoku.logic.exceptions.ConstraintViolationException;
+import sudoku.logic.grading.Difficulty;
+import sudoku.logic.pool.PuzzlePool;
+import sudoku.logic.store.PuzzleLibrary;
+import sudoku.logic.store.PuzzleStore;
+import sudoku.logic.tokens.GameTokens;
 
 /**
  * Spring MVC Controller
  */
 
 @Controller
-@SessionAttributes("sudoku")
+@SessionAttributes({ "sudoku", "board" })
 public class IndexController {
 
+	// number of matrices read and checked at once by the batch check
+	private static final int BATCH_CHUNK = 1024;
+	// bytes of a cell in the body of checkCells: row, column and value digits
+	private static final int CELL_LENGTH = 3;
+	// givens of the boards other than 9x9 by block size, few enough to be
+	// a game and enough to keep the digging of a 25x25 board short
+	private static final int[] SIZED_GIVENS = { 0, 0, 6, 0, 110, 320 };
+	// header carrying the game token of a stateless game
+	private static final String TOKEN_HEADER = "X-Game-Token";
+
 	@Resource
 	private SudokuManager manager;
 
+	@Resource
+	private PuzzlePool pool;
+
+	@Resource
+	private PuzzleLibrary library;
+
+	// shared with the json message converter, thread-safe once configured
+	@Resource
+	private ObjectMapper objectMapper;
+
+	// bounded executor running the slow handlers off the container threads
+	@Resource
+	private AsyncTaskExecutor asyncExecutor;
+
+	@Resource
+	private GameTokens tokens;
+
+	// bounded pool checking the chunks of the batch check, apart from the
+	// common pool
+	@Resource
+	private ForkJoinPool validationPool;
+
 	/**
-	 * this is the init method that generates the puzzle with 33 givens by
-	 * default.
+	 * this is the init method that serves a puzzle of the requested difficulty
+	 * (easy by default) with a unique solution, drawn at random from the puzzle
+	 * store of that difficulty if one is configured, otherwise taken from the
+	 * pool of pre-generated and graded puzzles.
+	 * Boards of the other sizes (4x4, 16x16 and 25x25) are generated on the
+	 * fly and not graded.
 	 * the difference between sudoku and puzzle are:
 	 * Sudoku is completly
 	 * filled with valid solutions.
 	 * Puzzle takes as template a Sudoku and dig out holes to
 	 * generate the puzzle.
+	 * The session keeps also the board of the player, updated by updateCells,
+	 * to give hints.
+	 * When the tokens are stateless the game is not kept in the session: the
+	 * page gets a signed token of the game instead, sent back in the
+	 * X-Game-Token header of the checks, and there are no hints.
 	 * 
-	 * @param ModelMap
-	 *            spring object to store request parameters
-	 * @return String name of the view where spring bounds the data model and
-	 *         generates html
+	 * The puzzle is prepared on the async executor, the container thread is
+	 * released straight away.
+	 * 
+	 * @param String
+	 *            difficulty easy, medium, hard or expert
+	 * @param Integer
+	 *            size the number of rows of the board: 4, 9 (by default), 16
+	 *            or 25
+	 * @return DeferredResult the view where spring bounds the data model and
+	 *         generates html, completed by the async executor
 	 */
 
 	@RequestMapping("/")
-	public String index(ModelMap modelMap) {
+	public DeferredResult<ModelAndView> index(
+			@RequestParam(value = "difficulty", required = false) String difficulty,
+			@RequestParam(value = "size", required = false) Integer size) {
+
+		final Difficulty level = difficulty != null ? Difficulty.parse(difficulty) : Difficulty.EASY;
+		final int blockSize = size != null ? Sudoku.blockSizeOf(size) : Sudoku.BLOCK_SIZE;
+
+		return this.async(new Callable<ModelAndView>() {
+			@Override
+			public ModelAndView call() {
+				return blockSize == Sudoku.BLOCK_SIZE ? newGame(level) : newSizedGame(blockSize);
+			}
+		});
+	}
 
-		Sudoku sudoku = manager.generateSudoku();
-		Sudoku puzzle = manager.puzzle(sudoku, 33);
+	/**
+	 * prepares the view of a new game
+	 */
+	private ModelAndView newGame(Difficulty level) {
+
+		ModelAndView view = new ModelAndView("index");
+
+		PuzzleStore store = library.get(level);
+		if (store != null) {
+			// read in place from the mapped file
+			int index = library.randomIndex(store);
+			String solution = store.getSolutionCode(index);
+			int[][] matrix = store.getPuzzleMatrix(index);
+			view.addObject("matrix", matrix);
+			if (tokens.isStateless()) {
+				view.addObject("token", tokens.issue(solution, matrix));
+			} else {
+				view.addObject("sudoku", solution);
+				view.addObject("board", new PlayerBoard(solution, matrix));
+			}
+			view.addObject("difficulty", level.name().toLowerCase());
+			view.addObject("size", Sudoku.PUZZLE_SIZE);
+			return view;
+		}
 
-		modelMap.addAttribute("sudoku", sudoku);
-		modelMap.addAttribute("matrix", puzzle.toArray());
+		Game game = pool.take(level);
 
-		return "index";
+		int[][] matrix = game.getPuzzle().toArray();
+		String solution = SudokuCodec.encode(game.getSolution());
+		view.addObject("matrix", matrix);
+		if (tokens.isStateless()) {
+			view.addObject("token", tokens.issue(solution, matrix));
+		} else {
+			// the session keeps only the 81 digits of the solution and the
+			// compact board of the player, sharing them
+			view.addObject("sudoku", solution);
+			view.addObject("board", new PlayerBoard(solution, matrix));
+		}
+		view.addObject("difficulty", game.getDifficulty().name().toLowerCase());
+		view.addObject("size", Sudoku.PUZZLE_SIZE);
+
+		return view;
 	}
 
 	/**
-	 * this method check if the puzzle is a valid and filled sudoku puzzle
+	 * prepares the view of a new game on a board other than 9x9, generated
+	 * and dug on the fly
+	 */
+	private ModelAndView newSizedGame(int blockSize) {
+
+		SplittableRandom random = new SplittableRandom();
+		Sudoku solution = manager.generateSudoku(blockSize, random);
+		Sudoku puzzle = manager.puzzle(solution, SIZED_GIVENS[blockSize], true, random);
+
+		ModelAndView view = new ModelAndView("index");
+		int[][] matrix = puzzle.toArray();
+		String code = SudokuCodec.encode(solution);
+		view.addObject("matrix", matrix);
+		if (tokens.isStateless()) {
+			view.addObject("token", tokens.issue(code, matrix));
+		} else {
+			view.addObject("sudoku", code);
+			view.addObject("board", new PlayerBoard(code, matrix));
+		}
+		view.addObject("size", solution.getSize());
+
+		return view;
+	}
+
+	/**
+	 * this method check if the puzzle is a valid and filled sudoku puzzle.
+	 * With the token of the game the givens of the puzzle must also be
+	 * unchanged
 	 * 
+	 * @param String
+	 *            token the token of a stateless game, if any
 	 * @param int[][]
 	 *            matrix the matrix that represents the sudoku grid
-	 * @return String return the response as json string object
+	 * @return ResultResponse the response serialized as json
 	 */
 
 	@ResponseBody
 	@RequestMapping(value = "/checkCorrectAnswers", method = RequestMethod.POST)
-	public String checkCorrectAnswers(@RequestBody int[][] matrix) {
+	public ResultResponse checkCorrectAnswers(@RequestHeader(value = TOKEN_HEADER, required = false) String token,
+			@RequestBody int[][] matrix) {
 
-		boolean result = true;
+		boolean result = manager.findViolatedUnit(matrix) == SudokuManager.VALID_ANSWERS;
+		if (result && token != null) {
+			result = tokens.verify(token).keepsGivens(matrix);
+		}
+
+		return ResultResponse.of(result);
+	}
+
+	/**
+	 * checks many puzzles in one request. The request body is a json array of
+	 * matrices that is read as a stream a chunk at time, each chunk is checked
+	 * in parallel on the validation pool and its results are streamed back as
+	 * a json array with one entry per matrix, in the same order:
+	 * {"result" : true} or {"result" : false, "unit" : "row 3"}. A body that
+	 * isn't valid json is answered with a 400, or, once some results have
+	 * been sent, with a last {"error" : "..."} entry closing the array
+	 * 
+	 * @param HttpServletRequest
+	 *            request the request whose body is the array of matrices
+	 * @param HttpServletResponse
+	 *            response the response where results are written
+	 */
+
+	@RequestMapping(value = "/checkCorrectAnswersBatch", method = RequestMethod.POST)
+	public void checkCorrectAnswersBatch(HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+
+		JsonParser parser = objectMapper.getFactory().createParser(request.getInputStream());
+		JsonGenerator generator = null;
 
 		try {
-			manager.checkValidAnswers(new Sudoku(matrix));
-		} catch (ConstraintViolationException e) {
-			result = false;
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				response.sendError(HttpServletResponse.SC_BAD_REQUEST, "expected an array of matrices");
+				return;
+			}
+
+			int[][][] matrices = new int[BATCH_CHUNK][Sudoku.PUZZLE_SIZE][Sudoku.PUZZLE_SIZE];
+			// matrices to check in the current chunk, null if malformed
+			int[][][] boards = new int[BATCH_CHUNK][][];
+			int[] results = new int[BATCH_CHUNK];
+
+			response.setContentType("application/json");
+			generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+			generator.writeStartArray();
+
+			int count = 0;
+			while (parser.nextToken() != JsonToken.END_ARRAY) {
+				boards[count] = this.readMatrix(parser, matrices[count]) ? matrices[count] : null;
+
+				if (++count == BATCH_CHUNK) {
+					this.writeResults(generator, boards, results, count);
+					count = 0;
+				}
+			}
+			this.writeResults(generator, boards, results, count);
+
+			generator.writeEndArray();
+			generator.close();
+		} catch (JsonProcessingException e) {
+			if (!response.isCommitted()) {
+				response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getOriginalMessage());
+			} else if (generator != null) {
+				// the status is gone with the first results, the client
+				// still gets a well-formed array telling where it stopped
+				generator.writeStartObject();
+				generator.writeStringField("error", e.getOriginalMessage());
+				generator.writeEndObject();
+				generator.writeEndArray();
+				generator.close();
+			}
+		} finally {
+			parser.close();
 		}
-		return "{\"result\" : " + result + "}";
+	}
+
+	/**
+	 * reads a 9x9 matrix from the parser positioned on its first token,
+	 * consuming the whole matrix even if it's malformed
+	 * 
+	 * @return boolean false if the matrix is malformed
+	 */
+	private boolean readMatrix(JsonParser parser, int[][] matrix) throws IOException {
+
+		if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+			parser.skipChildren();
+			return false;
+		}
+
+		boolean wellFormed = true;
+		int i = 0;
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			if (parser.getCurrentToken() != JsonToken.START_ARRAY || i >= Sudoku.PUZZLE_SIZE) {
+				parser.skipChildren();
+				wellFormed = false;
+				continue;
+			}
+
+			int j = 0;
+			while (parser.nextToken() != JsonToken.END_ARRAY) {
+				JsonToken token = parser.getCurrentToken();
+				int value;
+				if (token == JsonToken.VALUE_NUMBER_INT) {
+					value = parser.getIntValue();
+				} else if (token == JsonToken.VALUE_STRING && parser.getTextLength() == 1) {
+					value = parser.getTextCharacters()[parser.getTextOffset()] - '0';
+				} else {
+					parser.skipChildren();
+					value = 0;
+				}
+
+				if (j < Sudoku.PUZZLE_SIZE) {
+					matrix[i][j] = value;
+				}
+				++j;
+			}
+
+			wellFormed &= j == Sudoku.PUZZLE_SIZE;
+			++i;
+		}
+
+		return wellFormed && i == Sudoku.PUZZLE_SIZE;
+	}
+
+	/**
+	 * checks a chunk of matrices in parallel and writes their results
+	 */
+	private void writeResults(JsonGenerator generator, int[][][] boards, int[] results, int count)
+			throws IOException {
+
+		manager.findViolatedUnits(validationPool, boards, count, results);
+
+		for (int k = 0; k < count; k++) {
+			generator.writeStartObject();
+			generator.writeBooleanField("result", results[k] == SudokuManager.VALID_ANSWERS);
+			if (results[k] == SudokuManager.MALFORMED_BOARD) {
+				generator.writeStringField("error", "malformed matrix");
+			} else if (results[k] != SudokuManager.VALID_ANSWERS) {
+				generator.writeStringField("unit", SudokuManager.unitName(results[k]));
+			}
+			generator.writeEndObject();
+		}
+		generator.flush();
 	}
 
 	/**
 	 * check wheter a particular value is the correct one for a particular cell
 	 * of the puzzle
 	 * 
-	 * @param int[][]
-	 *            the matrix that represents the sudoku grid
-	 * @param Sudoku
-	 *            the Sudoku object stored in the session
-	 * @return String
-	 *         return the response as json string object
+	 * @param String
+	 *            token the token of a stateless game, if any
+	 * @param WebRequest
+	 *            request the request, whose session keeps the encoded
+	 *            solution when there is no token
+	 * @param int[]
+	 *            requestData row, column and value of the cell
+	 * @return CellResponse
+	 *         the response serialized as json
 	 */
 
 	@ResponseBody
 	@RequestMapping("/checkCell")
-	public String checkCell(@ModelAttribute("sudoku") Sudoku sudoku, @RequestBody int[] requestData) {
+	public CellResponse checkCell(@RequestHeader(value = TOKEN_HEADER, required = false) String token,
+			WebRequest request, @RequestBody int[] requestData) throws HttpSessionRequiredException {
 
+		String sudoku = this.solutionOf(token, request);
 		int row = requestData[0];
 		int column = requestData[1];
 		int value = requestData[2];
 
-		Cell cell = sudoku.getCell(row, column);
-		boolean result = cell.getValue() == value;
+		int solution = SudokuCodec.valueAt(sudoku, row, column);
+		boolean result = solution == value;
 
-		return "{\"result\" : " + result + ", \"value\": " + cell.getValue() + "}";
+		return new CellResponse(result, solution);
+	}
+
+	/**
+	 * checks many cells in one request, sent by the page when the player
+	 * stops typing. The body is plain text with 3 base 36 digits per cell,
+	 * row, column and value: "015832" checks 5 at [0,1] and 2 at [8,3], and
+	 * "a3g" 16 at [10,3] on a 16x16 board. At most one check per cell of the
+	 * board is accepted
+	 * 
+	 * @param String
+	 *            token the token of a stateless game, if any
+	 * @param WebRequest
+	 *            request the request, whose session keeps the encoded
+	 *            solution when there is no token
+	 * @param byte[]
+	 *            cells the digits of the cells
+	 * @return CellsResponse the bitmap of the correct cells and the values of
+	 *         the wrong ones, serialized as json
+	 */
+
+	@ResponseBody
+	@RequestMapping(value = "/checkCells", method = RequestMethod.POST)
+	public CellsResponse checkCells(@RequestHeader(value = TOKEN_HEADER, required = false) String token,
+			WebRequest request, @RequestBody byte[] cells) throws HttpSessionRequiredException {
+
+		String sudoku = this.solutionOf(token, request);
+		int size = SudokuCodec.sizeOf(sudoku);
+		if (cells.length % CELL_LENGTH != 0 || cells.length > size * size * CELL_LENGTH)
+			throw new IllegalArgumentException("expected up to " + size * size + " cells of 3 digits");
+
+		int count = cells.length / CELL_LENGTH;
+		long[] bitmap = new long[(count + 63) / 64];
+		char[] values = new char[count];
+		int wrong = 0;
+
+		for (int i = 0, offset = 0; i < count; i++, offset += CELL_LENGTH) {
+			int row = Character.digit(cells[offset], 36);
+			int column = Character.digit(cells[offset + 1], 36);
+			int value = Character.digit(cells[offset + 2], 36);
+			if (row < 0 || row >= size || column < 0 || column >= size || value < 0 || value > size)
+				throw new IllegalArgumentException("malformed cell " + i);
+
+			char solution = sudoku.charAt(row * size + column);
+			if (Character.digit(solution, 36) == value) {
+				bitmap[i >>> 6] |= 1L << i;
+			} else {
+				values[wrong++] = solution;
+			}
+		}
+
+		return CellsResponse.of(bitmap, count, values, wrong);
+	}
+
+	/**
+	 * records the moves of the player on the board kept in the session, so
+	 * that hints follow the board without solving it again. The page sends
+	 * the cells changed since its last update once the player stops typing,
+	 * in the format of checkCells with value 0 to clear a cell: "015830"
+	 * puts 5 at [0,1] and clears [8,3]
+	 * 
+	 * @param PlayerBoard
+	 *            board the board of the player stored in the session
+	 * @param byte[]
+	 *            cells the digits of the cells
+	 */
+
+	@ResponseStatus(HttpStatus.NO_CONTENT)
+	@RequestMapping(value = "/updateCells", method = RequestMethod.POST)
+	public void updateCells(@ModelAttribute("board") PlayerBoard board, @RequestBody byte[] cells) {
+
+		int size = board.getSize();
+		if (cells.length % CELL_LENGTH != 0 || cells.length > size * size * CELL_LENGTH)
+			throw new IllegalArgumentException("expected up to " + size * size + " cells of 3 digits");
+
+		for (int i = 0, offset = 0; offset < cells.length; i++, offset += CELL_LENGTH) {
+			int row = Character.digit(cells[offset], 36);
+			int column = Character.digit(cells[offset + 1], 36);
+			int value = Character.digit(cells[offset + 2], 36);
+			if (row < 0 || column < 0 || value < 0)
+				throw new IllegalArgumentException("malformed cell " + i);
+
+			board.setValue(row, column, value);
+		}
+	}
+
+	/**
+	 * gives the next step for the player from the current board: the first
+	 * wrong value to fix, otherwise a naked or hidden single read from the
+	 * candidate masks kept up to date by updateCells, otherwise the value of
+	 * the cell with the fewest candidates
+	 * 
+	 * @param PlayerBoard
+	 *            board the board of the player stored in the session
+	 * @return HintResponse the hint serialized as json
+	 */
+
+	@ResponseBody
+	@RequestMapping(value = "/hint", method = RequestMethod.POST)
+	public HintResponse hint(@ModelAttribute("board") PlayerBoard board) {
+
+		return HintResponse.of(board.hint());
+	}
+
+	/**
+	 * clears the values entered by the player on the board kept in the
+	 * session
+	 * 
+	 * @param PlayerBoard
+	 *            board the board of the player stored in the session
+	 */
+
+	@ResponseStatus(HttpStatus.NO_CONTENT)
+	@RequestMapping(value = "/resetBoard", method = RequestMethod.POST)
+	public void resetBoard(@ModelAttribute("board") PlayerBoard board) {
+
+		board.reset();
 	}
 
 	/**
 	 * resolve the puzzle
 	 * 
-	 * @param Sudoku
-	 *            sudoku
-	 *            the Sudoku puzzle object stored in the session
-	 * @return String
-	 *         return the solution for the puzzle as array of arrays in a
-	 *         json string object
+	 * @param String
+	 *            token the token of a stateless game, if any
+	 * @param WebRequest
+	 *            request the request, whose session keeps the encoded
+	 *            solution and the board of the player, filled with the
+	 *            solution, when there is no token
+	 * @param String
+	 *            format "compact" to get the solution as a string of 81
+	 *            digits instead of an array of arrays
+	 * @return MatrixResponse
+	 *         the solution for the puzzle serialized as json
 	 */
 
 	@ResponseBody
 	@RequestMapping("/solvePuzzle")
-	public String solvePuzzle(@ModelAttribute("sudoku") Sudoku sudoku) {
-		return "{\"matrix\" : " + this.toJson(sudoku.toArray()) + "}";
+	public DeferredResult<MatrixResponse> solvePuzzle(
+			@RequestHeader(value = TOKEN_HEADER, required = false) String token, WebRequest request,
+			@RequestParam(value = "format", required = false) final String format)
+			throws HttpSessionRequiredException {
+
+		final String sudoku = this.solutionOf(token, request);
+		final PlayerBoard board = token != null ? null
+				: (PlayerBoard) request.getAttribute("board", WebRequest.SCOPE_SESSION);
+
+		return this.async(new Callable<MatrixResponse>() {
+			@Override
+			public MatrixResponse call() {
+				if (board != null) {
+					board.solve();
+				}
+				return solution(sudoku, format);
+			}
+		});
 	}
 
 	/**
-	 * utility method to convert java object in json string object
+	 * builds the solution response of solvePuzzle
+	 */
+	public MatrixResponse solution(String sudoku, String format) {
+
+		if ("compact".equals(format)) {
+			return MatrixResponse.ofGrid(sudoku);
+		}
+		return MatrixResponse.ofMatrix(SudokuCodec.toMatrix(sudoku));
+	}
+
+	/**
+	 * gets the encoded solution of the game from its token, or from the
+	 * session if there is no token. Reading the session does not create it
 	 * 
-	 * @param Object
-	 *            object java object you need to convert
-	 * @return String return the json string object
+	 * @throws IllegalArgumentException
+	 *             if the token is malformed or forged
+	 * @throws HttpSessionRequiredException
+	 *             if there is neither a token nor a game in the session
 	 */
+	private String solutionOf(String token, WebRequest request) throws HttpSessionRequiredException {
 
-	private String toJson(Object object) {
-		final StringWriter sw = new StringWriter();
-		final ObjectMapper mapper = new ObjectMapper();
-		try {
-			mapper.writeValue(sw, object);
-		} catch (Exception e) {
-			return "error";
+		if (token != null) {
+			return tokens.verify(token).getSolution();
 		}
-		return sw.toString();
+
+		String sudoku = (String) request.getAttribute("sudoku", WebRequest.SCOPE_SESSION);
+		if (sudoku == null)
+			throw new HttpSessionRequiredException("Expected session attribute 'sudoku'");
+
+		return sudoku;
+	}
+
+	/**
+	 * runs a task on the async executor. The result times out after the
+	 * default timeout of mvc:async-support, and a full executor rejects the
+	 * task straight away
+	 * 
+	 * @param Callable
+	 *            task the body of the handler
+	 * @return DeferredResult the result of the task, or its exception
+	 */
+	private <T> DeferredResult<T> async(final Callable<T> task) {
+
+		final DeferredResult<T> result = new DeferredResult<T>();
+		result.onTimeout(new Runnable() {
+			@Override
+			public void run() {
+				result.setErrorResult(new TimeoutException("request timed out"));
+			}
+		});
+
+		asyncExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					result.setResult(task.call());
+				} catch (Exception e) {
+					result.setErrorResult(e);
+				}
+			}
+		});
+
+		return result;
+	}
+
+	/**
+	 * the async executor is full: the client should retry later
+	 */
+	@ExceptionHandler(RejectedExecutionException.class)
+	public void busy(HttpServletResponse response) throws IOException {
+		response.setHeader("Retry-After", "1");
+		response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "server busy");
+	}
+
+	/**
+	 * a move out of the board or on a given cell
+	 */
+	@ExceptionHandler(IllegalArgumentException.class)
+	public void badRequest(IllegalArgumentException e, HttpServletResponse response) throws IOException {
+		response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+	}
+
+	@ExceptionHandler(TimeoutException.class)
+	public void timeout(HttpServletResponse response) throws IOException {
+		response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "request timed out");
 	}
 
 }
@@ -0,0 +1,49 @@
+package controllers;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+import sudoku.logic.metrics.Metrics;
+
+/**
+ * LatencyInterceptor records the latency of every request in the histogram of
+ * its handler method. An async request is timed from its first dispatch to the
+ * end of the dispatch writing the result, so the time spent waiting for the
+ * executor is counted
+ */
+public class LatencyInterceptor extends HandlerInterceptorAdapter {
+
+	// request attribute holding the start of the request in nanoseconds
+	private static final String START = LatencyInterceptor.class.getName() + ".start";
+
+	private Metrics metrics;
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		// the async dispatch keeps the start of the first one
+		if (request.getAttribute(START) == null) {
+			request.setAttribute(START, System.nanoTime());
+		}
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		Object start = request.getAttribute(START);
+		if (start instanceof Long && handler instanceof HandlerMethod) {
+			String name = ((HandlerMethod) handler).getMethod().getName();
+			metrics.request(name).record(System.nanoTime() - (Long) start);
+		}
+	}
+
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+	}
+
+}
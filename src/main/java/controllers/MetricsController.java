@@ -0,0 +1,34 @@
+package controllers;
+
+import java.io.IOException;
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import sudoku.logic.metrics.Metrics;
+
+/**
+ * serves the metrics of the application to a Prometheus scraper
+ */
+
+@Controller
+public class MetricsController {
+
+	@Resource
+	private Metrics metrics;
+
+	/**
+	 * writes the request latencies and the generator counters in the text
+	 * format of Prometheus
+	 * 
+	 * @param HttpServletResponse
+	 *            response the response receiving the metrics
+	 */
+	@RequestMapping(value = "/metrics", method = RequestMethod.GET)
+	public void metrics(HttpServletResponse response) throws IOException {
+		response.setContentType("text/plain; version=0.0.4; charset=utf-8");
+		metrics.writeTo(response.getWriter());
+	}
+
+}
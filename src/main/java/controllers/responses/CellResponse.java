@@ -0,0 +1,25 @@
+package controllers.responses;
+
+/**
+ * json response of the check of a cell, with the correct value of the cell:
+ * {"result" : false, "value" : 5}
+ */
+public class CellResponse {
+
+	private final boolean result;
+	private final int value;
+
+	public CellResponse(final boolean result, final int value) {
+		this.result = result;
+		this.value = value;
+	}
+
+	public boolean getResult() {
+		return result;
+	}
+
+	public int getValue() {
+		return value;
+	}
+
+}
@@ -0,0 +1,49 @@
+package controllers.responses;
+
+/**
+ * json response of the batched check of cells: the bitmap of the correct
+ * cells as hex digits, the digit k holding the cells 4k to 4k+3 from its
+ * lowest bit, and the correct values of the wrong cells in the same order as
+ * base 36 digits, {"correct" : "b", "values" : "7"} for four cells where the
+ * third is wrong
+ */
+public class CellsResponse {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final String correct;
+	private final String values;
+
+	private CellsResponse(final String correct, final String values) {
+		this.correct = correct;
+		this.values = values;
+	}
+
+	/**
+	 * @param long[]
+	 *            bitmap the correct cells, bit i of word i / 64 for the cell
+	 *            i
+	 * @param int
+	 *            count the number of cells checked
+	 * @param char[]
+	 *            values the correct values of the wrong cells
+	 * @param int
+	 *            wrong the number of wrong cells
+	 */
+	public static CellsResponse of(final long[] bitmap, final int count, final char[] values, final int wrong) {
+		char[] digits = new char[(count + 3) / 4];
+		for (int k = 0; k < digits.length; k++) {
+			digits[k] = HEX[(int) (bitmap[k / 16] >>> (4 * (k % 16))) & 0xf];
+		}
+		return new CellsResponse(new String(digits), new String(values, 0, wrong));
+	}
+
+	public String getCorrect() {
+		return correct;
+	}
+
+	public String getValues() {
+		return values;
+	}
+
+}
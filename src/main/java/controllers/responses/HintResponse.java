@@ -0,0 +1,51 @@
+package controllers.responses;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import sudoku.logic.Hint;
+
+/**
+ * json response of a hint, the cell to fill with its value and the reason:
+ * {"kind" : "hidden_single", "row" : 2, "column" : 7, "value" : 4}, or
+ * {"kind" : "solved"} once the board is complete and correct
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class HintResponse {
+
+	private final String kind;
+	private final Integer row;
+	private final Integer column;
+	private final Integer value;
+
+	private HintResponse(final String kind, final Integer row, final Integer column, final Integer value) {
+		this.kind = kind;
+		this.row = row;
+		this.column = column;
+		this.value = value;
+	}
+
+	public static HintResponse of(final Hint hint) {
+		if (hint == null) {
+			return new HintResponse("solved", null, null, null);
+		}
+		return new HintResponse(hint.getKind().name().toLowerCase(), hint.getRow(), hint.getColumn(),
+				hint.getValue());
+	}
+
+	public String getKind() {
+		return kind;
+	}
+
+	public Integer getRow() {
+		return row;
+	}
+
+	public Integer getColumn() {
+		return column;
+	}
+
+	public Integer getValue() {
+		return value;
+	}
+
+}
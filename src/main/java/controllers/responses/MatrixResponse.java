@@ -0,0 +1,37 @@
+package controllers.responses;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * json response carrying a grid either as array of arrays,
+ * {"matrix" : [[5,3,4,...],...]}, or in the compact form of 81 digits,
+ * {"grid" : "534..."}
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MatrixResponse {
+
+	private final int[][] matrix;
+	private final String grid;
+
+	private MatrixResponse(final int[][] matrix, final String grid) {
+		this.matrix = matrix;
+		this.grid = grid;
+	}
+
+	public static MatrixResponse ofMatrix(final int[][] matrix) {
+		return new MatrixResponse(matrix, null);
+	}
+
+	public static MatrixResponse ofGrid(final String grid) {
+		return new MatrixResponse(null, grid);
+	}
+
+	public int[][] getMatrix() {
+		return matrix;
+	}
+
+	public String getGrid() {
+		return grid;
+	}
+
+}
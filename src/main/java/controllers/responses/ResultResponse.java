@@ -0,0 +1,25 @@
+package controllers.responses;
+
+/**
+ * json response of a check: {"result" : true}
+ */
+public class ResultResponse {
+
+	private static final ResultResponse TRUE = new ResultResponse(true);
+	private static final ResultResponse FALSE = new ResultResponse(false);
+
+	private final boolean result;
+
+	private ResultResponse(final boolean result) {
+		this.result = result;
+	}
+
+	public static ResultResponse of(final boolean result) {
+		return result ? TRUE : FALSE;
+	}
+
+	public boolean getResult() {
+		return result;
+	}
+
+}
@@ -0,0 +1,150 @@
+package sudoku.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * build step of the static assets, run by maven before the war is packaged.
+ * Every file of the asset directories is copied in the exploded war under a
+ * name holding the hash of its content, scripts.js as scripts.0123456789.js,
+ * together with a copy compressed with gzip at the highest level when that is
+ * smaller. The manifest WEB-INF/assets.properties maps the path of every
+ * asset to its fingerprinted path, it is read by AssetManifest to write the
+ * urls of the page and by AssetRequestHandler to serve the fingerprinted
+ * assets as immutable.
+ *
+ * The original files are left in place, so the page still works from a build
+ * without this step
+ */
+public class BuildAssets {
+
+	private static final String USAGE = "usage: BuildAssets --source dir --output dir [--dirs css,js]";
+
+	// hexadecimal digits of the hash in the file names
+	private static final int HASH_LENGTH = 10;
+
+	public static void main(String[] args) throws IOException {
+		String source = null;
+		String output = null;
+		String[] dirs = { "css", "js" };
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String name = args[i];
+				if (i + 1 == args.length)
+					throw new IllegalArgumentException("missing value of " + name);
+				String value = args[++i];
+
+				if ("--source".equals(name)) {
+					source = value;
+				} else if ("--output".equals(name)) {
+					output = value;
+				} else if ("--dirs".equals(name)) {
+					dirs = value.split(",");
+				} else {
+					throw new IllegalArgumentException("unknown option " + name);
+				}
+			}
+			if (source == null || output == null)
+				throw new IllegalArgumentException("missing --source or --output");
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+			return;
+		}
+
+		Path sourceRoot = Paths.get(source);
+		Path outputRoot = Paths.get(output);
+		// sorted, so the manifest is the same from build to build
+		Map<String, String> manifest = new TreeMap<String, String>();
+		long original = 0, compressed = 0;
+
+		for (String dir : dirs) {
+			Path sourceDir = sourceRoot.resolve(dir);
+			if (!Files.isDirectory(sourceDir)) {
+				continue;
+			}
+			Path outputDir = Files.createDirectories(outputRoot.resolve(dir));
+
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(sourceDir)) {
+				for (Path file : files) {
+					if (!Files.isRegularFile(file)) {
+						continue;
+					}
+					byte[] content = Files.readAllBytes(file);
+					String name = fingerprint(file.getFileName().toString(), content);
+					Files.write(outputDir.resolve(name), content);
+
+					byte[] gzip = gzip(content);
+					if (gzip.length < content.length) {
+						Files.write(outputDir.resolve(name + ".gz"), gzip);
+					}
+					original += content.length;
+					compressed += Math.min(gzip.length, content.length);
+
+					manifest.put(dir + "/" + file.getFileName(), dir + "/" + name);
+				}
+			}
+		}
+
+		Path manifestFile = Files.createDirectories(outputRoot.resolve("WEB-INF")).resolve("assets.properties");
+		try (Writer writer = Files.newBufferedWriter(manifestFile, StandardCharsets.ISO_8859_1)) {
+			writer.write("# asset path = fingerprinted path, written by BuildAssets\n");
+			for (Map.Entry<String, String> entry : manifest.entrySet()) {
+				writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+			}
+		}
+
+		System.err.printf("%d assets fingerprinted, %d bytes, %d compressed%n", manifest.size(), original,
+				compressed);
+	}
+
+	/**
+	 * inserts the hash of the content in a file name before its extension
+	 */
+	private static String fingerprint(final String name, final byte[] content) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		byte[] hash = digest.digest(content);
+
+		StringBuilder hex = new StringBuilder(HASH_LENGTH);
+		for (int i = 0; hex.length() < HASH_LENGTH; i++) {
+			hex.append(Character.forDigit(hash[i] >>> 4 & 0xf, 16)).append(Character.forDigit(hash[i] & 0xf, 16));
+		}
+		hex.setLength(HASH_LENGTH);
+
+		int dot = name.lastIndexOf('.');
+		return dot < 0 ? name + "." + hex : name.substring(0, dot) + "." + hex + name.substring(dot);
+	}
+
+	private static byte[] gzip(final byte[] content) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length);
+		try (OutputStream out = new GZIPOutputStream(bytes) {
+			{
+				def.setLevel(Deflater.BEST_COMPRESSION);
+			}
+		}) {
+			out.write(content);
+		}
+		return bytes.toByteArray();
+	}
+
+}
@@ -0,0 +1,172 @@
+package sudoku.cli;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import sudoku.logic.CompactSudoku;
+import sudoku.logic.Game;
+import sudoku.logic.SudokuCodec;
+import sudoku.logic.SudokuManager;
+import sudoku.logic.grading.Difficulty;
+import sudoku.logic.solvers.DancingLinksSolver;
+import sudoku.logic.store.PuzzleStoreWriter;
+import sudoku.logic.symmetry.Deduplicator;
+import sudoku.logic.symmetry.FingerprintIndex;
+
+/**
+ * command line entry point generating puzzles in bulk with
+ * SudokuManager.makeGames and streaming them to a file. The text format has
+ * one game per line:
+ * 
+ * <pre>
+ * id puzzle solution difficulty
+ * </pre>
+ * 
+ * puzzle and solution are 81 digits, 0 for empty cells. The binary format is
+ * a PuzzleStore file that the application can map in memory. Games come in
+ * the order the workers finish them; with --difficulty only the games of that
+ * difficulty are kept and with --dedup only the puzzles not equivalent by
+ * symmetry to one already written, so fewer than --count games may be written
+ */
+public class GeneratePuzzles {
+
+	private static final String USAGE = "usage: GeneratePuzzles --output file [--format text|binary]"
+			+ " [--difficulty easy|medium|hard|expert] [--dedup] [--count n] [--givens n] [--seed n] [--threads n]";
+
+	public static void main(String[] args) throws IOException {
+		String output = null;
+		boolean binary = false;
+		Difficulty difficulty = null;
+		boolean dedup = false;
+		int count = 1000;
+		int givens = 30;
+		long seed = new SplittableRandom().nextLong();
+		int threads = Runtime.getRuntime().availableProcessors();
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String name = args[i];
+				if ("--dedup".equals(name)) {
+					dedup = true;
+					continue;
+				}
+				if (i + 1 == args.length)
+					throw new IllegalArgumentException("missing value of " + name);
+				String value = args[++i];
+
+				if ("--output".equals(name)) {
+					output = value;
+				} else if ("--format".equals(name)) {
+					if (!"text".equals(value) && !"binary".equals(value))
+						throw new IllegalArgumentException("unknown format " + value);
+					binary = "binary".equals(value);
+				} else if ("--difficulty".equals(name)) {
+					difficulty = Difficulty.parse(value);
+				} else if ("--count".equals(name)) {
+					count = Integer.parseInt(value);
+					if (count < 0)
+						throw new IllegalArgumentException("count must not be negative");
+				} else if ("--givens".equals(name)) {
+					givens = Integer.parseInt(value);
+					if (givens < 0 || givens > CompactSudoku.CELLS)
+						throw new IllegalArgumentException("givens must be between 0-" + CompactSudoku.CELLS);
+				} else if ("--seed".equals(name)) {
+					seed = Long.parseLong(value);
+				} else if ("--threads".equals(name)) {
+					threads = Integer.parseInt(value);
+					if (threads < 1)
+						throw new IllegalArgumentException("threads must be positive");
+				} else {
+					throw new IllegalArgumentException("unknown option " + name);
+				}
+			}
+			if (output == null)
+				throw new IllegalArgumentException("missing --output");
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+			return;
+		}
+
+		SudokuManager manager = new SudokuManager();
+		manager.setSolver(new DancingLinksSolver());
+		ForkJoinPool pool = new ForkJoinPool(threads);
+
+		long start = System.nanoTime();
+		long written;
+		if (binary) {
+			try (PuzzleStoreWriter writer = new PuzzleStoreWriter(Paths.get(output), difficulty)) {
+				manager.makeGames(pool, seed, givens, count, dedup ? deduplicator(writer, count) : writer);
+				written = writer.getWritten();
+			} finally {
+				pool.shutdown();
+			}
+		} else {
+			try (LineWriter writer = new LineWriter(new BufferedWriter(
+					new OutputStreamWriter(Files.newOutputStream(Paths.get(output)), StandardCharsets.US_ASCII),
+					1 << 16), difficulty)) {
+				manager.makeGames(pool, seed, givens, count, dedup ? deduplicator(writer, count) : writer);
+				written = writer.written;
+			} finally {
+				pool.shutdown();
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.err.printf("%d puzzles generated in %.1fs (%.0f puzzles/s, %d threads, seed %d), %d written%n",
+				count, seconds, count / seconds, threads, seed, written);
+	}
+
+	private static Consumer<Game> deduplicator(final Consumer<Game> writer, final int count) {
+		return new Deduplicator(new FingerprintIndex(count), writer);
+	}
+
+	/**
+	 * writes every game as a line, serializing the workers on the writer
+	 */
+	private static final class LineWriter implements Consumer<Game>, Closeable {
+
+		private final Writer writer;
+		private final Difficulty difficulty;
+		private long written;
+
+		LineWriter(final Writer writer, final Difficulty difficulty) {
+			this.writer = writer;
+			this.difficulty = difficulty;
+		}
+
+		@Override
+		public void accept(final Game game) {
+			if (difficulty != null && game.getDifficulty() != difficulty) {
+				return;
+			}
+			// the line is built outside the lock, only the write is serialized
+			String line = game.getId() + " " + SudokuCodec.encode(game.getPuzzle()) + " "
+					+ SudokuCodec.encode(game.getSolution()) + " " + game.getDifficulty().name().toLowerCase() + "\n";
+			synchronized (writer) {
+				try {
+					writer.write(line);
+					++written;
+				} catch (IOException e) {
+					throw new IllegalStateException("unable to write the puzzles", e);
+				}
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			writer.close();
+		}
+	}
+
+}
@@ -0,0 +1,446 @@
+package sudoku.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import sudoku.logic.CompactSudoku;
+import sudoku.logic.ConstraintMasks;
+import sudoku.logic.Sudoku;
+import sudoku.logic.SudokuManager;
+import sudoku.logic.grading.Technique;
+import sudoku.logic.solvers.DancingLinksSolver;
+
+/**
+ * command line entry point solving, validating or grading the puzzles of a
+ * file with one puzzle per line: 81 cells in reading order, 1-9 for the
+ * givens and 0 or '.' for the empty cells, anything after the 81st cell and a
+ * separator is ignored. Every input line gets an output line, in the same
+ * order:
+ *
+ * <pre>
+ * solve     the 81 digits of the solution, or unsolvable
+ * validate  unique, multiple or unsolvable
+ * grade     the difficulty and the hardest technique, as "hard x_wing", of
+ *           the puzzles with a unique solution, multiple or unsolvable otherwise
+ * </pre>
+ *
+ * and invalid if the line is not a puzzle or its givens clash.
+ *
+ * The input is read through windows of the file mapped in memory and parsed
+ * as bytes, so files larger than the memory are streamed with no allocation
+ * per line. Puzzles go in batches to the workers of a fork/join pool, each
+ * with its own scratch board, and while a batch is solved the results of the
+ * previous one are written and the next one is read; results are written in
+ * the order of the input through a buffered channel
+ */
+public class SolvePuzzles {
+
+	private static final String USAGE = "usage: SolvePuzzles --input file --output file"
+			+ " [--mode solve|validate|grade] [--threads n] [--batch n]";
+
+	private static final int CELLS = CompactSudoku.CELLS;
+	// bytes of the output line of a puzzle, at most the solution and a newline
+	private static final int SLOT = CELLS + 1;
+	// puzzles of a batch below which a task is not split
+	private static final int SPLIT_THRESHOLD = 64;
+
+	private static final byte INVALID = 0;
+	private static final byte UNSOLVABLE = 1;
+	private static final byte MULTIPLE = 2;
+	// solved, or with a unique solution
+	private static final byte SOLVED = 3;
+
+	private static final byte[][] STATUS_LINES = { bytes("invalid\n"), bytes("unsolvable\n"),
+			bytes("multiple\n"), bytes("unique\n") };
+	private static final byte[][] GRADE_LINES = new byte[Technique.values().length][];
+
+	static {
+		for (Technique technique : Technique.values()) {
+			GRADE_LINES[technique.ordinal()] = bytes(technique.getDifficulty().name().toLowerCase() + " "
+					+ technique.name().toLowerCase() + "\n");
+		}
+	}
+
+	// boards reused by the workers, one per thread
+	private static final ThreadLocal<Sudoku> SCRATCH = new ThreadLocal<Sudoku>() {
+		@Override
+		protected Sudoku initialValue() {
+			return new Sudoku();
+		}
+	};
+
+	private enum Mode {
+		SOLVE, VALIDATE, GRADE
+	}
+
+	public static void main(String[] args) throws IOException {
+		String input = null;
+		String output = null;
+		Mode mode = Mode.SOLVE;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int batch = 1 << 14;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String name = args[i];
+				if (i + 1 == args.length)
+					throw new IllegalArgumentException("missing value of " + name);
+				String value = args[++i];
+
+				if ("--input".equals(name)) {
+					input = value;
+				} else if ("--output".equals(name)) {
+					output = value;
+				} else if ("--mode".equals(name)) {
+					if (!"solve".equals(value) && !"validate".equals(value) && !"grade".equals(value))
+						throw new IllegalArgumentException("unknown mode " + value);
+					mode = Mode.valueOf(value.toUpperCase());
+				} else if ("--threads".equals(name)) {
+					threads = Integer.parseInt(value);
+					if (threads < 1)
+						throw new IllegalArgumentException("threads must be positive");
+				} else if ("--batch".equals(name)) {
+					batch = Integer.parseInt(value);
+					if (batch < 1)
+						throw new IllegalArgumentException("batch must be positive");
+				} else {
+					throw new IllegalArgumentException("unknown option " + name);
+				}
+			}
+			if (input == null || output == null)
+				throw new IllegalArgumentException("missing --input or --output");
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+			return;
+		}
+
+		SudokuManager manager = new SudokuManager();
+		manager.setSolver(new DancingLinksSolver());
+		ForkJoinPool pool = new ForkJoinPool(threads);
+
+		long start = System.nanoTime();
+		long[] counts = new long[STATUS_LINES.length];
+		try (PuzzleReader reader = new PuzzleReader(FileChannel.open(Paths.get(input), StandardOpenOption.READ));
+				ResultWriter writer = new ResultWriter(FileChannel.open(Paths.get(output), StandardOpenOption.CREATE,
+						StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+
+			// a batch is solved while the other is written and refilled
+			Batch current = new Batch(batch);
+			Batch other = new Batch(batch);
+			reader.read(current);
+			boolean pending = false;
+
+			while (current.count > 0) {
+				ForkJoinTask<Void> solving = pool.submit(new SolveTask(manager, mode, current, 0, current.count));
+				if (pending) {
+					writer.write(other, counts);
+				}
+				reader.read(other);
+				solving.join();
+
+				Batch solved = current;
+				current = other;
+				other = solved;
+				pending = true;
+			}
+			if (pending) {
+				writer.write(other, counts);
+			}
+		} finally {
+			pool.shutdown();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		System.err.printf("%d puzzles in %.1fs (%.0f puzzles/s, %d threads): %d %s, %d multiple, %d unsolvable,"
+				+ " %d invalid%n", total, seconds, total / seconds, threads, counts[SOLVED],
+				mode == Mode.SOLVE ? "solved" : "unique", counts[MULTIPLE], counts[UNSOLVABLE], counts[INVALID]);
+	}
+
+	/**
+	 * solves, validates or grades a puzzle of a batch on the scratch board of
+	 * the thread, writing its status and output line in the batch
+	 */
+	private static void process(final SudokuManager manager, final Mode mode, final Batch batch, final int k) {
+
+		if (batch.status[k] == INVALID) {
+			return;
+		}
+
+		Sudoku sudoku = SCRATCH.get();
+		sudoku.reset();
+		ConstraintMasks constraints = sudoku.getConstraints();
+		int offset = k * CELLS;
+		for (int index = 0; index < CELLS; index++) {
+			int value = batch.cells[offset + index];
+			if (value == 0) {
+				continue;
+			}
+			int row = index / Sudoku.PUZZLE_SIZE, column = index % Sudoku.PUZZLE_SIZE;
+			if ((constraints.candidates(row, column) & ConstraintMasks.bit(value)) == 0) {
+				batch.status[k] = INVALID;
+				return;
+			}
+			sudoku.setValue(row, column, value);
+		}
+
+		if (mode == Mode.SOLVE) {
+			if (!manager.solve(sudoku)) {
+				batch.status[k] = UNSOLVABLE;
+				return;
+			}
+			int slot = k * SLOT;
+			for (int index = 0; index < CELLS; index++) {
+				batch.output[slot + index] = (byte) ('0'
+						+ sudoku.getValue(index / Sudoku.PUZZLE_SIZE, index % Sudoku.PUZZLE_SIZE));
+			}
+			batch.output[slot + CELLS] = '\n';
+			batch.lengths[k] = SLOT;
+			batch.status[k] = SOLVED;
+			return;
+		}
+
+		int solutions = manager.countSolutions(sudoku, 2);
+		batch.status[k] = solutions == 0 ? UNSOLVABLE : solutions == 1 ? SOLVED : MULTIPLE;
+		if (mode == Mode.GRADE && solutions == 1) {
+			byte[] line = GRADE_LINES[manager.grade(new CompactSudoku(sudoku)).ordinal()];
+			System.arraycopy(line, 0, batch.output, k * SLOT, line.length);
+			batch.lengths[k] = line.length;
+		}
+	}
+
+	private static byte[] bytes(final String text) {
+		return text.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * puzzles read from the input and their results, reused from batch to
+	 * batch
+	 */
+	private static final class Batch {
+
+		// values of the cells, 81 per puzzle
+		final byte[] cells;
+		final byte[] status;
+		// output lines, SLOT bytes per puzzle, with their length: the status
+		// line is used when the length is 0
+		final byte[] output;
+		final int[] lengths;
+		int count;
+
+		Batch(final int capacity) {
+			cells = new byte[capacity * CELLS];
+			status = new byte[capacity];
+			output = new byte[capacity * SLOT];
+			lengths = new int[capacity];
+		}
+	}
+
+	/**
+	 * processes a range of a batch, split in halves until it is small
+	 */
+	private static final class SolveTask extends RecursiveAction {
+
+		private final SudokuManager manager;
+		private final Mode mode;
+		private final Batch batch;
+		private final int from;
+		private final int to;
+
+		SolveTask(final SudokuManager manager, final Mode mode, final Batch batch, final int from, final int to) {
+			this.manager = manager;
+			this.mode = mode;
+			this.batch = batch;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= SPLIT_THRESHOLD) {
+				for (int k = from; k < to; k++) {
+					process(manager, mode, batch, k);
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new SolveTask(manager, mode, batch, from, middle),
+					new SolveTask(manager, mode, batch, middle, to));
+		}
+	}
+
+	/**
+	 * reads the puzzles of a file through windows mapped in memory, a line at
+	 * time straight from the mapped bytes
+	 */
+	private static final class PuzzleReader implements Closeable {
+
+		// bytes mapped at once, a line is never split between two windows
+		private static final int WINDOW = 1 << 26;
+
+		private final FileChannel channel;
+		private final long size;
+		private MappedByteBuffer window;
+		// position in the file of the window and of the next line
+		private long windowStart;
+		private long position;
+
+		PuzzleReader(final FileChannel channel) throws IOException {
+			this.channel = channel;
+			this.size = channel.size();
+		}
+
+		/**
+		 * fills a batch with the next puzzles, as many as it holds
+		 */
+		void read(final Batch batch) throws IOException {
+			int capacity = batch.status.length;
+			batch.count = 0;
+			while (batch.count < capacity && position < size) {
+				int k = batch.count++;
+				batch.lengths[k] = 0;
+				batch.status[k] = this.readLine(batch.cells, k * CELLS) ? SOLVED : INVALID;
+			}
+		}
+
+		/**
+		 * parses the line at the position and moves after it
+		 *
+		 * @return boolean false if the line is not a puzzle
+		 */
+		private boolean readLine(final byte[] cells, final int offset) throws IOException {
+
+			int end = this.findLineEnd();
+			// the line may not fit a window: skip it
+			if (end < 0) {
+				while (end < 0) {
+					position = windowStart + window.limit();
+					end = this.findLineEnd();
+				}
+				position = windowStart + end + 1;
+				return false;
+			}
+
+			int start = (int) (position - windowStart);
+			position = windowStart + end + 1;
+
+			int length = end - start;
+			if (length > 0 && window.get(end - 1) == '\r') {
+				--length;
+			}
+			if (length < CELLS || length > CELLS && isCell(window.get(start + CELLS))) {
+				return false;
+			}
+			for (int index = 0; index < CELLS; index++) {
+				byte c = window.get(start + index);
+				if (!isCell(c)) {
+					return false;
+				}
+				cells[offset + index] = (byte) (c == '.' ? 0 : c - '0');
+			}
+			return true;
+		}
+
+		/**
+		 * gets the end of the line at the position in the window, mapping the
+		 * window from the position if the line doesn't end in the current one
+		 *
+		 * @return int the index in the window of the newline, or of the end of
+		 *         the file, -1 if the line is longer than a window
+		 */
+		private int findLineEnd() throws IOException {
+			for (int attempt = 0; attempt < 2; attempt++) {
+				if (window != null && position >= windowStart) {
+					int limit = window.limit();
+					for (int i = (int) (position - windowStart); i < limit; i++) {
+						if (window.get(i) == '\n') {
+							return i;
+						}
+					}
+					if (windowStart + limit == size) {
+						return limit;
+					}
+					if (position == windowStart) {
+						return -1;
+					}
+				}
+				windowStart = position;
+				window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+						Math.min(WINDOW, size - windowStart));
+			}
+			return -1;
+		}
+
+		private static boolean isCell(final byte c) {
+			return c >= '0' && c <= '9' || c == '.';
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	/**
+	 * writes the output lines of the batches through a direct buffer
+	 */
+	private static final class ResultWriter implements Closeable {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+
+		ResultWriter(final FileChannel channel) {
+			this.channel = channel;
+		}
+
+		/**
+		 * writes the lines of a batch in order, counting the puzzles by
+		 * status
+		 */
+		void write(final Batch batch, final long[] counts) throws IOException {
+			for (int k = 0; k < batch.count; k++) {
+				if (buffer.remaining() < SLOT) {
+					this.flush();
+				}
+				++counts[batch.status[k]];
+				if (batch.lengths[k] > 0) {
+					buffer.put(batch.output, k * SLOT, batch.lengths[k]);
+				} else {
+					buffer.put(STATUS_LINES[batch.status[k]]);
+				}
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				this.flush();
+			} finally {
+				channel.close();
+			}
+		}
+	}
+
+}
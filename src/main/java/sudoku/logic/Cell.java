@@ -4,100 +4,96 @@ import java.io.Serializable;
 import java.util.HashSet;
 
 /**
- * Cell object rapresent the smallest part of a Sudoku
+ * Cell object rapresent the smallest part of a Sudoku: a view on a row and
+ * column of a board, reading and writing the arrays of the board. Two views on
+ * the same cell of the same board are equal
  */
 
 public class Cell implements Serializable {
 
-	private int value;
-	private HashSet<Integer> triedValues;
-	private int row;
-	private int column;
-	// given means the value is fix and can't be change or dig-out
-	private boolean isGiven;
+	private final Sudoku sudoku;
+	private final int row;
+	private final int column;
 
-	private static int CAPACITY = 9;
-
-	public Cell() {
-		value = 0;
-		triedValues = new HashSet<Integer>(CAPACITY);
-	}
-
-	public Cell(final int row, final int column) {
-		this();
+	Cell(final Sudoku sudoku, final int row, final int column) {
+		this.sudoku = sudoku;
 		this.row = row;
 		this.column = column;
 	}
 
-	public Cell(final int row, final int column, final int value) {
-		this(row, column);
-		this.value = value;
-	}
-
 	public boolean isFilled() {
-		return value != 0;
+		return this.getValue() != 0;
 	}
 
 	public int getValue() {
-		return value;
+		return sudoku.getValue(row, column);
 	}
 
 	public void setValue(final int number) {
-
-		if (number > 9 || number < 1)
-			throw new IllegalArgumentException("number must be between 1-9");
-		if (triedValues.contains(number))
-			throw new IllegalArgumentException("number has been already tried for this cell");
-
-		value = number;
-		triedValues.add(number);
+		sudoku.setValue(row, column, number);
 	}
 
 	public void clear() {
-		value = 0;
+		sudoku.clear(row, column);
 	}
 
 	public void reset() {
-		clear();
-		triedValues.clear();
+		sudoku.reset(row, column);
 	}
 
 	public HashSet<Integer> getTriedValues() {
-		return triedValues;
+		int size = sudoku.getSize();
+		int triedValues = this.getTriedMask();
+		HashSet<Integer> values = new HashSet<Integer>(size);
+		for (int number = 1; number <= size; number++) {
+			if ((triedValues & ConstraintMasks.bit(number)) != 0) {
+				values.add(number);
+			}
+		}
+		return values;
 	}
 
-	public int getRow() {
-		return row;
+	public int getTriedMask() {
+		return sudoku.getTriedMask(row, column);
 	}
 
-	public void setRow(int row) {
-		this.row = row;
+	public int getRow() {
+		return row;
 	}
 
 	public int getColumn() {
 		return column;
 	}
 
-	public void setColumn(int column) {
-		this.column = column;
-	}
-
 	public boolean isGiven() {
-		return isGiven;
+		return sudoku.isGiven(row, column);
 	}
 
 	public void setGiven(boolean isGiven) {
-		this.isGiven = isGiven;
+		sudoku.setGiven(row, column, isGiven);
 	}
 
 	public void normalize() {
-		this.setGiven(this.isFilled());
-		this.triedValues = new HashSet<Integer>();
+		sudoku.normalize(row, column);
+	}
+
+	@Override
+	public boolean equals(final Object other) {
+		if (!(other instanceof Cell)) {
+			return false;
+		}
+		Cell cell = (Cell) other;
+		return cell.sudoku == sudoku && cell.row == row && cell.column == column;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * System.identityHashCode(sudoku) + row) + column;
 	}
 
 	@Override
 	public String toString() {
-		return "cell [" + row + "," + column + "] = " + value;
+		return "cell [" + row + "," + column + "] = " + this.getValue();
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,189 @@
+package sudoku.logic;
+
+import java.io.Serializable;
+
+/**
+ * CompactSudoku represents the grid 9x9 cells as a single array of 81 bytes in
+ * reading order, plus a bitset of the given cells. It offers the same
+ * operations of Sudoku for a fraction of the memory and copying it is a
+ * single System.arraycopy, so it's the representation used to store games:
+ * the pool, the puzzle stores and the games handed out.
+ *
+ * Generation and digging work on a Sudoku, which keeps its values in arrays
+ * too but also the constraint masks read by the solvers that fill a board and
+ * count the solutions of a dug one, on boards from 4x4 to 25x25. A game is
+ * filled and dug in place on one Sudoku, reused by each thread in makeGames,
+ * and copied into compact boards
+ */
+public class CompactSudoku implements Serializable {
+
+	public static final int CELLS = Sudoku.PUZZLE_SIZE * Sudoku.PUZZLE_SIZE;
+
+	private final byte[] values;
+	// bit i set means the cell at index i is given (cells 64-80 in the high
+	// word)
+	private long givensLow;
+	private long givensHigh;
+
+	public CompactSudoku() {
+		values = new byte[CELLS];
+	}
+
+	public CompactSudoku(int[][] matrix) {
+		this(matrix, false);
+	}
+
+	public CompactSudoku(int[][] matrix, boolean setGivens) {
+		this();
+		for (int i = 0; i < Sudoku.PUZZLE_SIZE; ++i) {
+			for (int j = 0; j < Sudoku.PUZZLE_SIZE; ++j) {
+				values[index(i, j)] = (byte) matrix[i][j];
+			}
+		}
+		if (setGivens) {
+			normalize();
+		}
+	}
+
+	public CompactSudoku(final Sudoku sudoku) {
+		this();
+		for (int i = 0; i < Sudoku.PUZZLE_SIZE; ++i) {
+			for (int j = 0; j < Sudoku.PUZZLE_SIZE; ++j) {
+				values[index(i, j)] = (byte) sudoku.getValue(i, j);
+				this.setGiven(index(i, j), sudoku.isGiven(i, j));
+			}
+		}
+	}
+
+	private CompactSudoku(final CompactSudoku other) {
+		values = new byte[CELLS];
+		System.arraycopy(other.values, 0, values, 0, CELLS);
+		givensLow = other.givensLow;
+		givensHigh = other.givensHigh;
+	}
+
+	public CompactSudoku clone() {
+		return new CompactSudoku(this);
+	}
+
+	/**
+	 * gets the index of a cell in reading order
+	 */
+	public static int index(final int row, final int column) {
+		return row * Sudoku.PUZZLE_SIZE + column;
+	}
+
+	public int getValue(final int row, final int column) {
+		return values[index(row, column)];
+	}
+
+	public int getValue(final int index) {
+		return values[index];
+	}
+
+	public void setValue(final int row, final int column, final int number) {
+		if (number > 9 || number < 1)
+			throw new IllegalArgumentException("number must be between 1-9");
+		if (isGiven(index(row, column)))
+			throw new IllegalArgumentException("given cells can't be changed");
+
+		values[index(row, column)] = (byte) number;
+	}
+
+	public void clear(final int row, final int column) {
+		if (isGiven(index(row, column)))
+			throw new IllegalArgumentException("given cells can't be changed");
+
+		values[index(row, column)] = 0;
+	}
+
+	public boolean isFilled(final int row, final int column) {
+		return values[index(row, column)] != 0;
+	}
+
+	public boolean isGiven(final int row, final int column) {
+		return isGiven(index(row, column));
+	}
+
+	public boolean isGiven(final int index) {
+		return index < 64 ? (givensLow & (1L << index)) != 0 : (givensHigh & (1L << (index - 64))) != 0;
+	}
+
+	private void setGiven(final int index, final boolean isGiven) {
+		if (index < 64) {
+			givensLow = isGiven ? givensLow | (1L << index) : givensLow & ~(1L << index);
+		} else {
+			givensHigh = isGiven ? givensHigh | (1L << (index - 64)) : givensHigh & ~(1L << (index - 64));
+		}
+	}
+
+	/**
+	 * gets the index of the cell following a cell in reading order
+	 *
+	 * @param int
+	 *            index the index of the reference cell
+	 *
+	 * @return int the index of the next cell or -1 if the cell is the last one
+	 */
+	public int nextCell(final int index) {
+		return index < CELLS - 1 ? index + 1 : -1;
+	}
+
+	/**
+	 * gets the index of the cell preceding a cell in reading order
+	 *
+	 * @param int
+	 *            index the index of the reference cell
+	 *
+	 * @return int the index of the previous cell or -1 if the cell is the first
+	 *         one
+	 */
+	public int previousCell(final int index) {
+		return index > 0 ? index - 1 : -1;
+	}
+
+	/**
+	 * marks as given all and only the filled cells
+	 */
+	public void normalize() {
+		givensLow = 0;
+		givensHigh = 0;
+		for (int index = 0; index < CELLS; index++) {
+			setGiven(index, values[index] != 0);
+		}
+	}
+
+	public int[][] toArray() {
+		int[][] matrix = new int[Sudoku.PUZZLE_SIZE][Sudoku.PUZZLE_SIZE];
+
+		for (int i = 0; i < Sudoku.PUZZLE_SIZE; i++) {
+			for (int j = 0; j < Sudoku.PUZZLE_SIZE; j++) {
+				matrix[i][j] = values[index(i, j)];
+			}
+		}
+
+		return matrix;
+	}
+
+	/**
+	 * converts the compact board in a Sudoku object with the same values and
+	 * givens
+	 *
+	 * @return Sudoku the equivalent Sudoku
+	 */
+	public Sudoku toSudoku() {
+		Sudoku sudoku = new Sudoku(this.toArray());
+		for (int index = 0; index < CELLS; index++) {
+			if (isGiven(index)) {
+				sudoku.setGiven(index / Sudoku.PUZZLE_SIZE, index % Sudoku.PUZZLE_SIZE, true);
+			}
+		}
+		return sudoku;
+	}
+
+	@Override
+	public String toString() {
+		return this.toSudoku().toString();
+	}
+
+}
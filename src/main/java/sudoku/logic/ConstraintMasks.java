@@ -0,0 +1,199 @@
+package sudoku.logic;
+
+import java.io.Serializable;
+
+/**
+ * ConstraintMasks keeps track of the values already used in every row, column
+ * and block of a Sudoku as occupancy masks (bit n-1 set means value n is
+ * used), 9 bits wide on the classic board and up to 25 on a 25x25 one. The
+ * masks are updated incrementally by the board, so the candidates of a cell
+ * can be computed with three ORs and no allocation at all.
+ *
+ * The static helpers work on the classic 9x9 board, the instance methods on
+ * the size of the board the masks belong to.
+ *
+ * The masks are exact as long as the board doesn't contain duplicate values,
+ * which is always the case while generating or solving a puzzle.
+ */
+public class ConstraintMasks implements Serializable {
+
+	public static final int ALL_VALUES = (1 << Sudoku.PUZZLE_SIZE) - 1;
+
+	private final int size;
+	private final int allValues;
+	private final int[] rows;
+	private final int[] columns;
+	private final int[] blocks;
+	// first block of the band of every row and block of the stack of every
+	// column, their sum is the block of a cell without any division
+	private final int[] bands;
+	private final int[] stacks;
+
+	public ConstraintMasks() {
+		this(Sudoku.BLOCK_SIZE);
+	}
+
+	/**
+	 * @param int
+	 *            blockSize the side of the blocks of the board, 3 for the
+	 *            classic 9x9
+	 */
+	public ConstraintMasks(final int blockSize) {
+		size = blockSize * blockSize;
+		allValues = (1 << size) - 1;
+		rows = new int[size];
+		columns = new int[size];
+		blocks = new int[size];
+		bands = new int[size];
+		stacks = new int[size];
+		for (int i = 0; i < size; i++) {
+			bands[i] = (i / blockSize) * blockSize;
+			stacks[i] = i / blockSize;
+		}
+	}
+
+	/**
+	 * copies the masks of another board, the band and stack tables never
+	 * change and are shared
+	 *
+	 * @param ConstraintMasks
+	 *            other the masks to copy
+	 */
+	public ConstraintMasks(final ConstraintMasks other) {
+		size = other.size;
+		allValues = other.allValues;
+		rows = other.rows.clone();
+		columns = other.columns.clone();
+		blocks = other.blocks.clone();
+		bands = other.bands;
+		stacks = other.stacks;
+	}
+
+	/**
+	 * marks a value as used in the row, column and block of a cell
+	 *
+	 * @param int
+	 *            row the row of the cell
+	 * @param int
+	 *            column the column of the cell
+	 * @param int
+	 *            value the value placed in the cell
+	 */
+	public void place(final int row, final int column, final int value) {
+		int bit = bit(value);
+		rows[row] |= bit;
+		columns[column] |= bit;
+		blocks[bands[row] + stacks[column]] |= bit;
+	}
+
+	/**
+	 * marks a value as no more used in the row, column and block of a cell
+	 *
+	 * @param int
+	 *            row the row of the cell
+	 * @param int
+	 *            column the column of the cell
+	 * @param int
+	 *            value the value removed from the cell
+	 */
+	public void remove(final int row, final int column, final int value) {
+		int bit = ~bit(value);
+		rows[row] &= bit;
+		columns[column] &= bit;
+		blocks[bands[row] + stacks[column]] &= bit;
+	}
+
+	/**
+	 * gets the values that can be placed in a cell without violating any
+	 * constraint
+	 *
+	 * @param int
+	 *            row the row of the cell
+	 * @param int
+	 *            column the column of the cell
+	 * @return int the mask of the allowed values
+	 */
+	public int candidates(final int row, final int column) {
+		return allValues & ~(rows[row] | columns[column] | blocks[bands[row] + stacks[column]]);
+	}
+
+	/**
+	 * gets the number of values (and of rows, columns and blocks) of the board
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * gets the mask of all the values of the board
+	 */
+	public int getAllValues() {
+		return allValues;
+	}
+
+	/**
+	 * gets the index of the block where a cell lives on the board of the
+	 * masks, left to right and top to bottom
+	 */
+	public int blockOf(final int row, final int column) {
+		return bands[row] + stacks[column];
+	}
+
+	/**
+	 * checks if a value is one of the values of the board of the masks
+	 */
+	public boolean isValid(final int value) {
+		return value >= 1 && value <= size;
+	}
+
+	public int getRowMask(final int row) {
+		return rows[row];
+	}
+
+	public int getColumnMask(final int column) {
+		return columns[column];
+	}
+
+	public int getBlockMask(final int block) {
+		return blocks[block];
+	}
+
+	/**
+	 * gets the index (0-8, left to right and top to bottom) of the block where
+	 * a cell lives
+	 */
+	public static int block(final int row, final int column) {
+		return (row / Sudoku.BLOCK_SIZE) * Sudoku.BLOCK_SIZE + column / Sudoku.BLOCK_SIZE;
+	}
+
+	/**
+	 * gets the mask bit of a value
+	 */
+	public static int bit(final int value) {
+		return 1 << (value - 1);
+	}
+
+	/**
+	 * gets the value of the n-th (starting from 0) bit set in a mask
+	 *
+	 * @param int
+	 *            mask the candidates mask
+	 * @param int
+	 *            index the index of the set bit
+	 * @return int the value represented by the bit
+	 */
+	public static int valueAt(int mask, final int index) {
+		for (int i = 0; i < index; i++) {
+			mask &= mask - 1;
+		}
+		return Integer.numberOfTrailingZeros(mask) + 1;
+	}
+
+	/**
+	 * checks if a value is one of the values handled by the masks
+	 */
+	public static boolean isValidValue(final int value) {
+		return value >= 1 && value <= Sudoku.PUZZLE_SIZE;
+	}
+
+}
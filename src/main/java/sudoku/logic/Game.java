@@ -0,0 +1,76 @@
+package sudoku.logic;
+
+import java.io.Serializable;
+
+import sudoku.logic.grading.Difficulty;
+
+/**
+ * Game object couples a puzzle with the filled Sudoku it has been dug-out from.
+ * 
+ * A game is identified by a 64-bit puzzle id holding the number of givens in
+ * the lowest 7 bits and the generation seed in the others, so the id alone is
+ * enough to regenerate the game with SudokuManager.makeGame(long). The
+ * difficulty is graded once when the game is made
+ */
+public class Game implements Serializable {
+
+	private static final int GIVENS_BITS = 7;
+	private static final long GIVENS_MASK = (1L << GIVENS_BITS) - 1;
+
+	private final long id;
+	private final CompactSudoku solution;
+	private final CompactSudoku puzzle;
+	private final Difficulty difficulty;
+
+	public Game(final long id, final CompactSudoku solution, final CompactSudoku puzzle,
+			final Difficulty difficulty) {
+		this.id = id;
+		this.solution = solution;
+		this.puzzle = puzzle;
+		this.difficulty = difficulty;
+	}
+
+	/**
+	 * builds a puzzle id from a generation seed and a number of givens, the
+	 * highest 7 bits of the seed are dropped
+	 * 
+	 * @param long
+	 *            seed the generation seed
+	 * 
+	 * @param int
+	 *            givens the number of givens of the puzzle
+	 * 
+	 * @return long the puzzle id
+	 */
+	public static long toId(final long seed, final int givens) {
+		if (givens > CompactSudoku.CELLS || givens < 0)
+			throw new IllegalArgumentException("givens must be between 0-" + CompactSudoku.CELLS);
+
+		return seed << GIVENS_BITS | givens;
+	}
+
+	public static long seedOf(final long id) {
+		return id >>> GIVENS_BITS;
+	}
+
+	public static int givensOf(final long id) {
+		return (int) (id & GIVENS_MASK);
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public CompactSudoku getSolution() {
+		return solution;
+	}
+
+	public CompactSudoku getPuzzle() {
+		return puzzle;
+	}
+
+	public Difficulty getDifficulty() {
+		return difficulty;
+	}
+
+}
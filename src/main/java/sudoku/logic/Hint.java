@@ -0,0 +1,56 @@
+package sudoku.logic;
+
+import java.io.Serializable;
+
+/**
+ * Hint is the next step suggested to a player: a cell and the value it must
+ * take, with the reason it has been chosen
+ */
+public class Hint implements Serializable {
+
+	public enum Kind {
+		// a filled cell doesn't match the solution
+		MISTAKE,
+		// the cell has a single candidate left
+		NAKED_SINGLE,
+		// the value fits only that cell of a row, column or block
+		HIDDEN_SINGLE,
+		// no single can be found, the cell with the fewest candidates is
+		// revealed
+		REVEAL
+	}
+
+	private final int row;
+	private final int column;
+	private final int value;
+	private final Kind kind;
+
+	public Hint(final int row, final int column, final int value, final Kind kind) {
+		this.row = row;
+		this.column = column;
+		this.value = value;
+		this.kind = kind;
+	}
+
+	public int getRow() {
+		return row;
+	}
+
+	public int getColumn() {
+		return column;
+	}
+
+	public int getValue() {
+		return value;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	@Override
+	public String toString() {
+		return kind.name().toLowerCase().replace('_', ' ') + " [" + row + "," + column + "] = " + value;
+	}
+
+}
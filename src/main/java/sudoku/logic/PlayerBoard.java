@@ -0,0 +1,284 @@
+package sudoku.logic;
+
+import java.io.Serializable;
+
+/**
+ * PlayerBoard follows the board of a player during a game so that hints are
+ * computed from the current state instead of solving the board again. The
+ * board is kept as small as the game it follows: the values in a byte per
+ * cell, the row, column and block masks of the values used, a bitset of the
+ * givens and a bitset of the cells not matching the solution, all updated in
+ * place by every move. The solution is the encoded string already kept in
+ * the session, shared and not copied.
+ *
+ * The player may enter values clashing with other cells, so clearing a cell
+ * puts back in the masks the same value still held by its peers. Boards of
+ * any size are followed.
+ *
+ * A board is kept in the session and can be hit by concurrent requests, all
+ * the methods are synchronized
+ */
+public class PlayerBoard implements Serializable {
+
+	private final int size;
+	private final int blockSize;
+	// solution encoded as a string of base 36 digits, see SudokuCodec
+	private final String solution;
+	// values of the player and of the givens in reading order, 0 if empty
+	private final byte[] values;
+	private final ConstraintMasks constraints;
+	// bit i % 64 of word i / 64 set means the cell at index i is given
+	private final long[] givens;
+	// bit i % 64 of word i / 64 set means the cell at index i doesn't match
+	// the solution
+	private final long[] wrong;
+	private int empty;
+
+	/**
+	 * @param String
+	 *            solution the solution of the puzzle encoded as a string of
+	 *            base 36 digits, see SudokuCodec.encode(Sudoku)
+	 * @param int[][]
+	 *            puzzle the puzzle of the same size, 0 for empty cells
+	 */
+	public PlayerBoard(final String solution, final int[][] puzzle) {
+		if (SudokuCodec.sizeOf(solution) != puzzle.length)
+			throw new IllegalArgumentException("the solution must have the size of the puzzle");
+
+		this.size = puzzle.length;
+		this.blockSize = Sudoku.blockSizeOf(size);
+		this.solution = solution;
+		this.values = new byte[size * size];
+		this.constraints = new ConstraintMasks(blockSize);
+		this.givens = new long[(values.length + 63) / 64];
+		this.wrong = new long[givens.length];
+		for (int index = 0; index < values.length; index++) {
+			int value = puzzle[index / size][index % size];
+			if (value != 0) {
+				values[index] = (byte) value;
+				givens[index >>> 6] |= 1L << index;
+				constraints.place(index / size, index % size, value);
+			} else {
+				++empty;
+			}
+		}
+	}
+
+	/**
+	 * fills a cell with a value, or clears it if the value is 0
+	 *
+	 * @param int
+	 *            row the row of the cell
+	 * @param int
+	 *            column the column of the cell
+	 * @param int
+	 *            value the value between 1 and the size of the board, 0 to
+	 *            clear the cell
+	 */
+	public synchronized void setValue(final int row, final int column, final int value) {
+		if (row >= size || row < 0 || column >= size || column < 0)
+			throw new IllegalArgumentException("cell index out of bound");
+		if (value != 0 && !constraints.isValid(value))
+			throw new IllegalArgumentException("number must be between 1-" + size);
+
+		int index = row * size + column;
+		int old = values[index];
+		if (old == value) {
+			// nothing to do, the page may send again the value of a given
+			return;
+		}
+		if (this.isGiven(index))
+			throw new IllegalArgumentException("given cells can't be changed");
+
+		values[index] = (byte) value;
+		if (old != 0) {
+			constraints.remove(row, column, old);
+			this.restorePeers(row, column, old);
+		} else {
+			--empty;
+		}
+
+		if (value != 0) {
+			constraints.place(row, column, value);
+		} else {
+			++empty;
+		}
+
+		this.setWrong(index, value != 0 && value != this.solutionAt(index));
+	}
+
+	/**
+	 * fills all the cells with the solution
+	 */
+	public synchronized void solve() {
+		for (int index = 0; index < values.length; index++) {
+			if (!this.isGiven(index) && values[index] != this.solutionAt(index)) {
+				this.setValue(index / size, index % size, this.solutionAt(index));
+			}
+		}
+	}
+
+	/**
+	 * clears all the cells filled by the player
+	 */
+	public synchronized void reset() {
+		for (int index = 0; index < values.length; index++) {
+			if (!this.isGiven(index)) {
+				this.setValue(index / size, index % size, 0);
+			}
+		}
+	}
+
+	/**
+	 * finds the next step for the player: a mistake to fix first, then a
+	 * naked or a hidden single read from the constraint masks, otherwise the
+	 * empty cell with the fewest candidates is revealed
+	 *
+	 * @return Hint the hint or null if the board is solved
+	 */
+	public synchronized Hint hint() {
+		for (int word = 0; word < wrong.length; word++) {
+			if (wrong[word] != 0) {
+				return this.hintAt(64 * word + Long.numberOfTrailingZeros(wrong[word]), Hint.Kind.MISTAKE);
+			}
+		}
+		if (empty == 0) {
+			return null;
+		}
+
+		int fewest = -1, fewestCount = Integer.MAX_VALUE;
+		for (int index = 0; index < values.length; index++) {
+			if (values[index] != 0) {
+				continue;
+			}
+			int count = Integer.bitCount(constraints.candidates(index / size, index % size));
+			if (count == 1) {
+				return this.hintAt(index, Hint.Kind.NAKED_SINGLE);
+			}
+			if (count < fewestCount) {
+				fewest = index;
+				fewestCount = count;
+			}
+		}
+
+		int hidden = this.findHiddenSingle();
+		if (hidden >= 0) {
+			return this.hintAt(hidden, Hint.Kind.HIDDEN_SINGLE);
+		}
+		return this.hintAt(fewest, Hint.Kind.REVEAL);
+	}
+
+	public synchronized boolean isSolved() {
+		if (empty != 0) {
+			return false;
+		}
+		for (long word : wrong) {
+			if (word != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * gets the number of rows of the board
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	public synchronized int[][] toArray() {
+		int[][] matrix = new int[size][size];
+		for (int index = 0; index < values.length; index++) {
+			matrix[index / size][index % size] = values[index];
+		}
+		return matrix;
+	}
+
+	/**
+	 * looks for a value fitting a single empty cell of a row, column or
+	 * block
+	 *
+	 * @return int the index of the cell or -1 if there is none
+	 */
+	private int findHiddenSingle() {
+		for (int unit = 0; unit < 3 * size; unit++) {
+			// values seen at least once and at least twice among the
+			// candidates of the unit
+			int once = 0, twice = 0;
+			for (int k = 0; k < size; k++) {
+				int index = this.unitCell(unit, k);
+				if (values[index] == 0) {
+					int candidates = constraints.candidates(index / size, index % size);
+					twice |= once & candidates;
+					once |= candidates;
+				}
+			}
+
+			int singles = once & ~twice;
+			if (singles != 0) {
+				int bit = singles & -singles;
+				for (int k = 0; k < size; k++) {
+					int index = this.unitCell(unit, k);
+					if (values[index] == 0 && (constraints.candidates(index / size, index % size) & bit) != 0) {
+						return index;
+					}
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * gets the index of the k-th cell of a unit: rows first, then columns
+	 * and blocks (0-8, 9-17 and 18-26 on a 9x9 board)
+	 */
+	private int unitCell(final int unit, final int k) {
+		int n = unit % size;
+		switch (unit / size) {
+		case 0:
+			return n * size + k;
+		case 1:
+			return k * size + n;
+		default:
+			int row = (n / blockSize) * blockSize + k / blockSize;
+			int column = (n % blockSize) * blockSize + k % blockSize;
+			return row * size + column;
+		}
+	}
+
+	/**
+	 * puts back in the masks a value removed from a cell but still held by
+	 * some of its peers
+	 */
+	private void restorePeers(final int row, final int column, final int value) {
+		int block = constraints.blockOf(row, column);
+		for (int index = 0; index < values.length; index++) {
+			int r = index / size, c = index % size;
+			if (values[index] == value && (r == row || c == column || constraints.blockOf(r, c) == block)) {
+				constraints.place(r, c, value);
+			}
+		}
+	}
+
+	private Hint hintAt(final int index, final Hint.Kind kind) {
+		return new Hint(index / size, index % size, this.solutionAt(index), kind);
+	}
+
+	private int solutionAt(final int index) {
+		return Character.digit(solution.charAt(index), 36);
+	}
+
+	private boolean isGiven(final int index) {
+		return (givens[index >>> 6] & (1L << index)) != 0;
+	}
+
+	private void setWrong(final int index, final boolean isWrong) {
+		if (isWrong) {
+			wrong[index >>> 6] |= 1L << index;
+		} else {
+			wrong[index >>> 6] &= ~(1L << index);
+		}
+	}
+
+}
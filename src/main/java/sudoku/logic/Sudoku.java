@@ -1,55 +1,268 @@
 package sudoku.logic;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
- * Sudoku object represents the grid 9x9 cells
+ * Sudoku object represents the grid of cells, 9x9 by default. Boards from 4x4
+ * (blocks of 2x2) to 25x25 (blocks of 5x5) are supported, the size is chosen
+ * when the board is built.
+ *
+ * The board is kept in primitive arrays in reading order: a byte per value,
+ * the mask of the values tried in every cell, a bitset of the givens, and the
+ * constraint masks of the values used, updated on every change. A copy of the
+ * board is a copy of these arrays. Cells are views on the board, the solvers
+ * and the digging work on the board itself by row and column
  */
 public class Sudoku implements Serializable {
 
-	private Cell[][] cells;
+	private final int blockSize;
+	private final int size;
+	// values in reading order, 0 for empty cells and -1 for values outside
+	// 1-size read from a matrix
+	private final byte[] values;
+	// mask of the values already tried for every cell (bit n-1 for value n)
+	private final int[] tried;
+	// bit i % 64 of word i / 64 set means the cell at index i is given, its
+	// value is fix and can't be change or dig-out
+	private final long[] givens;
+	private final ConstraintMasks constraints;
+	// block side and size of the classic board
 	public static final int BLOCK_SIZE = 3;
 	public static final int PUZZLE_SIZE = BLOCK_SIZE * BLOCK_SIZE;
+	// block sides of the smallest (4x4) and largest (25x25) boards
+	public static final int MIN_BLOCK_SIZE = 2;
+	public static final int MAX_BLOCK_SIZE = 5;
 
 	public Sudoku() {
-		cells = new Cell[9][9];
-		for (int i = 0; i < 9; ++i) {
-			for (int j = 0; j < 9; ++j) {
-				cells[i][j] = new Cell(i, j);
-			}
-		}
+		this(BLOCK_SIZE);
+	}
+
+	/**
+	 * builds an empty board
+	 * 
+	 * @param int
+	 *            blockSize the side of the blocks, between 2 (4x4 board) and 5
+	 *            (25x25 board)
+	 */
+	public Sudoku(final int blockSize) {
+		if (blockSize < MIN_BLOCK_SIZE || blockSize > MAX_BLOCK_SIZE)
+			throw new IllegalArgumentException("block size must be between " + MIN_BLOCK_SIZE + "-" + MAX_BLOCK_SIZE);
+
+		this.blockSize = blockSize;
+		this.size = blockSize * blockSize;
+		this.values = new byte[size * size];
+		this.tried = new int[size * size];
+		this.givens = new long[(size * size + 63) / 64];
+		this.constraints = new ConstraintMasks(blockSize);
 	}
 
 	public Sudoku(int[][] matrix) {
 		this(matrix, false);
 	}
 
+	/**
+	 * builds a board from a matrix, its size is taken from the matrix
+	 * 
+	 * @param int[][]
+	 *            matrix the values of the cells, 0 for empty cells
+	 * @param boolean
+	 *            setGivens whether the filled cells are marked as given
+	 */
 	public Sudoku(int[][] matrix, boolean setGivens) {
-		cells = new Cell[9][9];
-		for (int i = 0; i < 9; ++i) {
-			for (int j = 0; j < 9; ++j) {
-				Cell cell = new Cell(i, j, matrix[i][j]);
+		this(blockSizeOf(matrix.length));
+		for (int i = 0; i < size; ++i) {
+			if (matrix[i].length != size)
+				throw new IllegalArgumentException("the matrix must be square");
+			for (int j = 0; j < size; ++j) {
+				int value = matrix[i][j];
+				if (value == 0) {
+					continue;
+				}
+				int index = i * size + j;
+				if (constraints.isValid(value)) {
+					values[index] = (byte) value;
+					constraints.place(i, j, value);
+				} else {
+					values[index] = -1;
+				}
 				if (setGivens) {
-					cell.normalize();
+					givens[index >>> 6] |= 1L << index;
 				}
-				cells[i][j] = cell;
 			}
 		}
 	}
 
+	/**
+	 * builds the puzzle of a game record read straight from a buffer, see
+	 * SudokuCodec for the record layout: the givens are filled and marked as
+	 * given, the other cells are empty
+	 * 
+	 * @param ByteBuffer
+	 *            buffer the buffer holding the record, its position is not
+	 *            changed
+	 * @param int
+	 *            offset the position of the record
+	 */
+	public Sudoku(final ByteBuffer buffer, final int offset) {
+		this(BLOCK_SIZE);
+		for (int index = 0; index < values.length; index++) {
+			if (SudokuCodec.isGivenAt(buffer, offset, index)) {
+				int value = SudokuCodec.valueAt(buffer, offset, index);
+				values[index] = (byte) value;
+				givens[index >>> 6] |= 1L << index;
+				constraints.place(index / size, index % size, value);
+			}
+		}
+	}
+
+	/**
+	 * copies the values and the masks of a board, the givens and the tried
+	 * values are not copied
+	 */
+	private Sudoku(final Sudoku other) {
+		blockSize = other.blockSize;
+		size = other.size;
+		values = other.values.clone();
+		tried = new int[values.length];
+		givens = new long[other.givens.length];
+		constraints = new ConstraintMasks(other.constraints);
+	}
+
+	/**
+	 * gets the side of the blocks of a board with a given number of rows
+	 * 
+	 * @param int
+	 *            size the number of rows of the board
+	 * @return int the side of the blocks
+	 */
+	public static int blockSizeOf(final int size) {
+		for (int blockSize = MIN_BLOCK_SIZE; blockSize <= MAX_BLOCK_SIZE; blockSize++) {
+			if (blockSize * blockSize == size) {
+				return blockSize;
+			}
+		}
+		throw new IllegalArgumentException("board size must be 4, 9, 16 or 25");
+	}
+
+	/**
+	 * copies the values of the board, an array copy of the values and of the
+	 * masks. CompactSudoku is a 9x9 board for storing games, see
+	 * CompactSudoku
+	 */
 	public Sudoku clone() {
-		return new Sudoku(this.toArray());
+		return new Sudoku(this);
+	}
+
+	public int getBlockSize() {
+		return blockSize;
 	}
 
+	/**
+	 * gets the number of rows (and columns, blocks and values) of the board
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * gets a view on a cell of the board
+	 */
 	public Cell getCell(final int row, final int column) {
-		return cells[row][column];
+		return new Cell(this, row, column);
+	}
+
+	public ConstraintMasks getConstraints() {
+		return constraints;
+	}
+
+	/**
+	 * gets the value of a cell
+	 * 
+	 * @return int the value, 0 if the cell is empty
+	 */
+	public int getValue(final int row, final int column) {
+		return values[row * size + column];
+	}
+
+	/**
+	 * fills a cell with a value not tried yet, updating the masks
+	 * 
+	 * @param int
+	 *            row the row of the cell
+	 * @param int
+	 *            column the column of the cell
+	 * @param int
+	 *            number the value between 1 and the size of the board
+	 */
+	public void setValue(final int row, final int column, final int number) {
+		if (number > size || number < 1)
+			throw new IllegalArgumentException("number must be between 1-" + size);
+		int index = row * size + column;
+		if ((tried[index] & ConstraintMasks.bit(number)) != 0)
+			throw new IllegalArgumentException("number has been already tried for this cell");
+
+		this.clear(row, column);
+		values[index] = (byte) number;
+		tried[index] |= ConstraintMasks.bit(number);
+		constraints.place(row, column, number);
+	}
+
+	/**
+	 * empties a cell, keeping its tried values
+	 */
+	public void clear(final int row, final int column) {
+		int index = row * size + column;
+		if (constraints.isValid(values[index])) {
+			constraints.remove(row, column, values[index]);
+		}
+		values[index] = 0;
+	}
+
+	/**
+	 * empties a cell and forgets its tried values
+	 */
+	public void reset(final int row, final int column) {
+		this.clear(row, column);
+		tried[row * size + column] = 0;
+	}
+
+	/**
+	 * gets the mask of the values already tried for a cell (bit n-1 for
+	 * value n)
+	 */
+	public int getTriedMask(final int row, final int column) {
+		return tried[row * size + column];
+	}
+
+	public boolean isGiven(final int row, final int column) {
+		int index = row * size + column;
+		return (givens[index >>> 6] & 1L << index) != 0;
+	}
+
+	public void setGiven(final int row, final int column, final boolean isGiven) {
+		int index = row * size + column;
+		if (isGiven) {
+			givens[index >>> 6] |= 1L << index;
+		} else {
+			givens[index >>> 6] &= ~(1L << index);
+		}
+	}
+
+	/**
+	 * marks a cell as given if it is filled and forgets its tried values
+	 */
+	public void normalize(final int row, final int column) {
+		this.setGiven(row, column, values[row * size + column] != 0);
+		tried[row * size + column] = 0;
 	}
 
 	public Cell nextCell(final Cell cell) {
 		int r = cell.getRow(), c = cell.getColumn();
-		if (c < PUZZLE_SIZE - 1) {
+		if (c < size - 1) {
 			++c;
-		} else if (r < PUZZLE_SIZE - 1) {
+		} else if (r < size - 1) {
 			c = 0;
 			++r;
 		} else {
@@ -59,11 +272,25 @@ public class Sudoku implements Serializable {
 		return getCell(r, c);
 	}
 
+	/**
+	 * empties every cell, givens included, so that the board can be reused
+	 */
+	public void reset() {
+		for (int index = 0; index < values.length; index++) {
+			if (values[index] != 0) {
+				this.clear(index / size, index % size);
+			}
+		}
+		Arrays.fill(tried, 0);
+		Arrays.fill(givens, 0L);
+	}
+
 	public void normalize() {
-		for (int i = 0; i < 9; ++i) {
-			for (int j = 0; j < 9; ++j) {
-				Cell cell = this.getCell(j, i);
-				cell.normalize();
+		Arrays.fill(tried, 0);
+		Arrays.fill(givens, 0L);
+		for (int index = 0; index < values.length; index++) {
+			if (values[index] != 0) {
+				givens[index >>> 6] |= 1L << index;
 			}
 		}
 	}
@@ -74,7 +301,7 @@ public class Sudoku implements Serializable {
 			--c;
 		} else if (r != 0) {
 			--r;
-			c = PUZZLE_SIZE - 1;
+			c = size - 1;
 		} else {
 			return null;
 		}
@@ -83,12 +310,10 @@ public class Sudoku implements Serializable {
 	}
 
 	public int[][] toArray() {
-		int[][] matrix = new int[PUZZLE_SIZE][PUZZLE_SIZE];
+		int[][] matrix = new int[size][size];
 
-		for (int i = 0; i < PUZZLE_SIZE; i++) {
-			for (int j = 0; j < PUZZLE_SIZE; j++) {
-				matrix[i][j] = cells[i][j].getValue();
-			}
+		for (int index = 0; index < values.length; index++) {
+			matrix[index / size][index % size] = values[index];
 		}
 
 		return matrix;
@@ -97,29 +322,22 @@ public class Sudoku implements Serializable {
 	@Override
 	public String toString() {
 
-		String boardString = "";
-		int length = cells.length;
+		StringBuilder boardString = new StringBuilder();
 
-		for (int i = 0; i < length; i++) {
-			if (i % 3 == 0) {
-				boardString += "====================\n";
+		for (int i = 0; i < size; i++) {
+			if (i % blockSize == 0) {
+				boardString.append("====================\n");
 			}
-			for (int j = 0; j < length; j++) {
-				if (j % 3 == 0) {
-					boardString += " | ";
-				}
-
-				try {
-					boardString += Integer.toString(cells[i][j].getValue());
-				} catch (RuntimeException e) {
-					boardString += " ";
+			for (int j = 0; j < size; j++) {
+				if (j % blockSize == 0) {
+					boardString.append(" | ");
 				}
+				boardString.append(values[i * size + j]);
 			}
-			boardString += "|";
-			boardString += "\n";
+			boardString.append("|\n");
 		}
-		boardString += "====================\n";
+		boardString.append("====================\n");
 
-		return boardString;
+		return boardString.toString();
 	}
 }
@@ -0,0 +1,328 @@
+package sudoku.logic;
+
+import java.nio.ByteBuffer;
+
+/**
+ * SudokuCodec converts a board to and from its compact encodings:
+ * <ul>
+ * <li>a string of 81 digits in reading order, 0 (or '.') for empty cells</li>
+ * <li>41 bytes packing two cells per byte, high nibble first</li>
+ * </ul>
+ * Both encodings keep only the values, givens are restored on decoding if
+ * requested. Boards of the other sizes are encoded as a string of one base 36
+ * digit per cell (1-9 then a-p), which on a 9x9 board is the string of 81
+ * digits.
+ *
+ * A game is stored as a fixed-width record of 52 bytes: the packed solution
+ * followed by 11 bytes of givens bitmap (cell i at bit i % 8 of byte i / 8),
+ * the puzzle being the solution restricted to the givens
+ */
+public final class SudokuCodec {
+
+	public static final int PACKED_LENGTH = (CompactSudoku.CELLS + 1) / 2;
+	public static final int GIVENS_LENGTH = (CompactSudoku.CELLS + 7) / 8;
+	public static final int RECORD_LENGTH = PACKED_LENGTH + GIVENS_LENGTH;
+
+	private SudokuCodec() {
+	}
+
+	/**
+	 * encodes a board as a string of 81 digits
+	 *
+	 * @param CompactSudoku
+	 *            sudoku the board to encode
+	 *
+	 * @return String the encoded board
+	 */
+	public static String encode(final CompactSudoku sudoku) {
+		char[] chars = new char[CompactSudoku.CELLS];
+		for (int index = 0; index < CompactSudoku.CELLS; index++) {
+			chars[index] = (char) ('0' + sudoku.getValue(index));
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * decodes a board from a string of 81 digits
+	 *
+	 * @param String
+	 *            code the encoded board
+	 *
+	 * @return CompactSudoku the decoded board
+	 */
+	public static CompactSudoku decode(final String code) {
+		return decode(code, false);
+	}
+
+	/**
+	 * decodes a board from a string of 81 digits
+	 *
+	 * @param String
+	 *            code the encoded board
+	 *
+	 * @param boolean
+	 *            setGivens whether the filled cells must be marked as given
+	 *
+	 * @return CompactSudoku the decoded board
+	 */
+	public static CompactSudoku decode(final String code, final boolean setGivens) {
+		if (code == null || code.length() != CompactSudoku.CELLS)
+			throw new IllegalArgumentException("encoded sudoku must be " + CompactSudoku.CELLS + " characters long");
+
+		int[][] matrix = new int[Sudoku.PUZZLE_SIZE][Sudoku.PUZZLE_SIZE];
+		for (int index = 0; index < CompactSudoku.CELLS; index++) {
+			matrix[index / Sudoku.PUZZLE_SIZE][index % Sudoku.PUZZLE_SIZE] = digit(code.charAt(index));
+		}
+		return new CompactSudoku(matrix, setGivens);
+	}
+
+	/**
+	 * encodes a board of any size as a string of base 36 digits
+	 *
+	 * @param Sudoku
+	 *            sudoku the board to encode
+	 *
+	 * @return String the encoded board
+	 */
+	public static String encode(final Sudoku sudoku) {
+		int size = sudoku.getSize();
+		char[] chars = new char[size * size];
+		for (int index = 0; index < chars.length; index++) {
+			chars[index] = Character.forDigit(sudoku.getValue(index / size, index % size), 36);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * decodes the values of a board of any size from a string of base 36
+	 * digits
+	 *
+	 * @param String
+	 *            code the encoded board
+	 *
+	 * @return int[][] the values of the cells, 0 for empty cells
+	 */
+	public static int[][] toMatrix(final String code) {
+		int size = sizeOf(code);
+		int[][] matrix = new int[size][size];
+		for (int index = 0; index < size * size; index++) {
+			matrix[index / size][index % size] = value(code.charAt(index), size);
+		}
+		return matrix;
+	}
+
+	/**
+	 * gets the number of rows of an encoded board
+	 *
+	 * @param String
+	 *            code the encoded board
+	 *
+	 * @return int 4, 9, 16 or 25
+	 */
+	public static int sizeOf(final String code) {
+		if (code != null && code.length() == CompactSudoku.CELLS) {
+			return Sudoku.PUZZLE_SIZE;
+		}
+		int size = code == null ? 0 : (int) Math.sqrt(code.length());
+		if (code == null || size * size != code.length())
+			throw new IllegalArgumentException("encoded sudoku must have a square number of characters");
+
+		Sudoku.blockSizeOf(size);
+		return size;
+	}
+
+	/**
+	 * reads the value of a single cell from an encoded board of any size
+	 * without decoding the whole board
+	 *
+	 * @param String
+	 *            code the encoded board
+	 * @param int
+	 *            row the row of the cell
+	 * @param int
+	 *            column the column of the cell
+	 *
+	 * @return int the value of the cell, 0 if empty
+	 */
+	public static int valueAt(final String code, final int row, final int column) {
+		int size = sizeOf(code);
+		if (row >= size || row < 0 || column >= size || column < 0)
+			throw new IllegalArgumentException("cell index out of bound");
+
+		return value(code.charAt(row * size + column), size);
+	}
+
+	/**
+	 * packs a board in 41 bytes, two cells per byte
+	 *
+	 * @param CompactSudoku
+	 *            sudoku the board to pack
+	 *
+	 * @return byte[] the packed board
+	 */
+	public static byte[] pack(final CompactSudoku sudoku) {
+		byte[] packed = new byte[PACKED_LENGTH];
+		pack(sudoku, packed, 0);
+		return packed;
+	}
+
+	/**
+	 * packs a board in 41 bytes of an array starting from an offset
+	 *
+	 * @param CompactSudoku
+	 *            sudoku the board to pack
+	 * @param byte[]
+	 *            packed the destination array
+	 * @param int
+	 *            offset the position of the first byte to write
+	 */
+	public static void pack(final CompactSudoku sudoku, final byte[] packed, final int offset) {
+		for (int index = 0; index < CompactSudoku.CELLS; index += 2) {
+			int high = sudoku.getValue(index);
+			int low = index + 1 < CompactSudoku.CELLS ? sudoku.getValue(index + 1) : 0;
+			packed[offset + index / 2] = (byte) (high << 4 | low);
+		}
+	}
+
+	/**
+	 * unpacks a board from 41 bytes
+	 *
+	 * @param byte[]
+	 *            packed the packed board
+	 *
+	 * @return CompactSudoku the unpacked board
+	 */
+	public static CompactSudoku unpack(final byte[] packed) {
+		if (packed == null || packed.length < PACKED_LENGTH)
+			throw new IllegalArgumentException("packed sudoku must be " + PACKED_LENGTH + " bytes long");
+
+		return unpack(packed, 0);
+	}
+
+	/**
+	 * unpacks a board from 41 bytes of an array starting from an offset
+	 *
+	 * @param byte[]
+	 *            packed the source array
+	 * @param int
+	 *            offset the position of the first byte to read
+	 *
+	 * @return CompactSudoku the unpacked board
+	 */
+	public static CompactSudoku unpack(final byte[] packed, final int offset) {
+		int[][] matrix = new int[Sudoku.PUZZLE_SIZE][Sudoku.PUZZLE_SIZE];
+		for (int index = 0; index < CompactSudoku.CELLS; index++) {
+			int b = packed[offset + index / 2];
+			int value = (index & 1) == 0 ? (b >> 4) & 0xF : b & 0xF;
+			if (value > Sudoku.PUZZLE_SIZE)
+				throw new IllegalArgumentException("invalid packed value " + value);
+
+			matrix[index / Sudoku.PUZZLE_SIZE][index % Sudoku.PUZZLE_SIZE] = value;
+		}
+		return new CompactSudoku(matrix);
+	}
+
+	/**
+	 * writes a game as a record at the position of a buffer, advancing it
+	 *
+	 * @param Game
+	 *            game the game to write
+	 * @param ByteBuffer
+	 *            buffer the destination buffer, with at least RECORD_LENGTH
+	 *            bytes remaining
+	 */
+	public static void packRecord(final Game game, final ByteBuffer buffer) {
+		CompactSudoku solution = game.getSolution();
+		CompactSudoku puzzle = game.getPuzzle();
+
+		for (int index = 0; index < CompactSudoku.CELLS; index += 2) {
+			int high = solution.getValue(index);
+			int low = index + 1 < CompactSudoku.CELLS ? solution.getValue(index + 1) : 0;
+			buffer.put((byte) (high << 4 | low));
+		}
+		for (int index = 0; index < CompactSudoku.CELLS; index += 8) {
+			int bits = 0;
+			for (int k = 0; k < 8 && index + k < CompactSudoku.CELLS; k++) {
+				if (puzzle.getValue(index + k) != 0) {
+					bits |= 1 << k;
+				}
+			}
+			buffer.put((byte) bits);
+		}
+	}
+
+	/**
+	 * reads the solution value of a cell from a record without moving the
+	 * buffer position
+	 *
+	 * @param ByteBuffer
+	 *            buffer the buffer holding the record
+	 * @param int
+	 *            offset the position of the record
+	 * @param int
+	 *            index the index of the cell in reading order
+	 *
+	 * @return int the value of the cell in the solution
+	 */
+	public static int valueAt(final ByteBuffer buffer, final int offset, final int index) {
+		int b = buffer.get(offset + index / 2);
+		return (index & 1) == 0 ? (b >> 4) & 0xF : b & 0xF;
+	}
+
+	/**
+	 * tells whether a cell is given in the puzzle of a record without moving
+	 * the buffer position
+	 *
+	 * @param ByteBuffer
+	 *            buffer the buffer holding the record
+	 * @param int
+	 *            offset the position of the record
+	 * @param int
+	 *            index the index of the cell in reading order
+	 *
+	 * @return boolean true if the cell is given
+	 */
+	public static boolean isGivenAt(final ByteBuffer buffer, final int offset, final int index) {
+		return (buffer.get(offset + PACKED_LENGTH + index / 8) & (1 << (index & 7))) != 0;
+	}
+
+	/**
+	 * encodes the solution of a record as a string of 81 digits
+	 *
+	 * @param ByteBuffer
+	 *            buffer the buffer holding the record
+	 * @param int
+	 *            offset the position of the record
+	 *
+	 * @return String the encoded solution
+	 */
+	public static String encode(final ByteBuffer buffer, final int offset) {
+		char[] chars = new char[CompactSudoku.CELLS];
+		for (int index = 0; index < CompactSudoku.CELLS; index++) {
+			chars[index] = (char) ('0' + valueAt(buffer, offset, index));
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * gets the value of a base 36 digit of a board with a given size
+	 */
+	private static int value(final char c, final int size) {
+		int value = c == '.' ? 0 : Character.digit(c, 36);
+		if (value < 0 || value > size)
+			throw new IllegalArgumentException("invalid encoded value '" + c + "'");
+
+		return value;
+	}
+
+	private static int digit(final char c) {
+		if (c == '.') {
+			return 0;
+		}
+		if (c < '0' || c > '9')
+			throw new IllegalArgumentException("invalid encoded value '" + c + "'");
+
+		return c - '0';
+	}
+
+}
@@ -1,9 +1,19 @@
 package sudoku.logic;
 
-import java.util.HashSet;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 
 import sudoku.logic.exceptions.ConstraintViolationException;
+import sudoku.logic.grading.Difficulty;
+import sudoku.logic.grading.LogicalSolver;
+import sudoku.logic.grading.Technique;
+import sudoku.logic.metrics.Metrics;
+import sudoku.logic.solvers.BacktrackingSolver;
+import sudoku.logic.solvers.MostConstrainedSolver;
+import sudoku.logic.solvers.SudokuSolver;
+import sudoku.logic.symmetry.Canonicalizer;
 
 /**
  * SudokuManager is the class responsible to generate, solve, dig-out sudokus
@@ -13,6 +23,39 @@ import sudoku.logic.exceptions.ConstraintViolationException;
 
 public class SudokuManager {
 
+	// results of findViolatedUnit other than the code of a violated unit
+	public static final int VALID_ANSWERS = -1;
+	public static final int MALFORMED_BOARD = -2;
+	// result of checkUnit for a unit holding every value once
+	private static final int COMPLETE_UNIT = -1;
+
+	// steps of a uniqueness check while digging a board other than 9x9, a
+	// longer check counts as ambiguous
+	private static final int DIG_STEPS = 2000;
+
+	// boards reused by makeGames, one per worker thread
+	private static final ThreadLocal<Sudoku> SCRATCH = new ThreadLocal<Sudoku>() {
+		@Override
+		protected Sudoku initialValue() {
+			return new Sudoku();
+		}
+	};
+
+	private static final ThreadLocal<Canonicalizer> CANONICALIZERS = new ThreadLocal<Canonicalizer>() {
+		@Override
+		protected Canonicalizer initialValue() {
+			return new Canonicalizer();
+		}
+	};
+
+	private final BacktrackingSolver iterativeSolver = new BacktrackingSolver();
+	// backend used to resolve puzzles, configurable in dispatcher-servlet.xml
+	private SudokuSolver solver = iterativeSolver;
+	// backend of the boards other than 9x9
+	private final MostConstrainedSolver sizedSolver = new MostConstrainedSolver();
+	// receives the work and the durations of the generator, none if null
+	private Metrics metrics;
+
 	/**
 	 * generates a complete filled and valid Sodoku
 	 * 
@@ -20,8 +63,51 @@ public class SudokuManager {
 	 * 
 	 */
 	public Sudoku generateSudoku() {
+		return this.generateSudoku(new SplittableRandom());
+	}
+
+	/**
+	 * generates a complete filled and valid Sodoku driven by a random
+	 * generator, the same generator state always produces the same Sudoku
+	 * 
+	 * @param SplittableRandom
+	 *            random the generator of the random choices
+	 * 
+	 ** @return Sudoku return the generated Sudoku
+	 * 
+	 */
+	public Sudoku generateSudoku(final SplittableRandom random) {
+		long start = System.nanoTime();
 		Sudoku sudoku = new Sudoku();
-		this.solve(sudoku, sudoku.getCell(0, 0));
+		iterativeSolver.solve(sudoku, random);
+		this.recordFill(start);
+		return sudoku;
+	}
+
+	/**
+	 * generates a complete filled and valid Sudoku of any size driven by a
+	 * random generator. Boards other than 9x9 are filled most constrained
+	 * cell first, which stays practical up to 25x25
+	 * 
+	 * @param int
+	 *            blockSize the side of the blocks, between 2 (4x4 board) and
+	 *            5 (25x25 board)
+	 * 
+	 * @param SplittableRandom
+	 *            random the generator of the random choices
+	 * 
+	 ** @return Sudoku return the generated Sudoku
+	 * 
+	 */
+	public Sudoku generateSudoku(final int blockSize, final SplittableRandom random) {
+		if (blockSize == Sudoku.BLOCK_SIZE) {
+			return this.generateSudoku(random);
+		}
+
+		long start = System.nanoTime();
+		Sudoku sudoku = new Sudoku(blockSize);
+		sizedSolver.solve(sudoku, random);
+		this.recordFill(start);
 		return sudoku;
 	}
 
@@ -37,11 +123,153 @@ public class SudokuManager {
 
 	public Sudoku makePuzzle(int givens) {
 
-		Sudoku sudoku = new Sudoku();
-		this.solve(sudoku);
+		Sudoku sudoku = this.generateSudoku();
 		return this.puzzle(sudoku, givens);
 	}
 
+	/**
+	 * generates a Sudoku and a puzzle with a unique solution dug-out from it
+	 * leaving n givens cell filled
+	 * 
+	 * @param int
+	 *            givens number of cell needs to remain filled
+	 * 
+	 * @return Game the puzzle together with its solution
+	 */
+	public Game makeGame(int givens) {
+
+		return this.makeGame(Game.toId(new SplittableRandom().nextLong(), givens));
+	}
+
+	/**
+	 * regenerates the game identified by a puzzle id: the seed in the id
+	 * drives both the generation of the Sudoku and the dig-out, so the same
+	 * id always gives the same solution and givens
+	 * 
+	 * @param long
+	 *            id the puzzle id, see Game.toId
+	 * 
+	 * @return Game the puzzle together with its solution
+	 */
+	public Game makeGame(long id) {
+		return this.makeGame(id, new Sudoku());
+	}
+
+	/**
+	 * regenerates the game identified by a puzzle id working on a scratch
+	 * board, which is reset and left dirty: only the returned game holds the
+	 * result
+	 * 
+	 * @param long
+	 *            id the puzzle id, see Game.toId
+	 * 
+	 * @param Sudoku
+	 *            scratch the board to work on
+	 * 
+	 * @return Game the puzzle together with its solution
+	 */
+	public Game makeGame(long id, final Sudoku scratch) {
+
+		SplittableRandom random = new SplittableRandom(Game.seedOf(id));
+		long start = System.nanoTime();
+		scratch.reset();
+		iterativeSolver.solve(scratch, random.split());
+		this.recordFill(start);
+		CompactSudoku solution = new CompactSudoku(scratch);
+
+		start = System.nanoTime();
+		scratch.normalize();
+		this.digUnique(scratch, Game.givensOf(id), random.split());
+		this.recordDig(start);
+		CompactSudoku puzzle = new CompactSudoku(scratch);
+		return new Game(id, solution, puzzle, this.difficulty(puzzle));
+	}
+
+	/**
+	 * computes the canonical form of a board: two boards are equivalent under
+	 * transposition, band, row, stack and column permutations and relabeling
+	 * of the digits if and only if they have the same canonical form, see
+	 * Canonicalizer
+	 * 
+	 * @param CompactSudoku
+	 *            sudoku the board
+	 * 
+	 * @return CompactSudoku the canonical form of the board
+	 */
+	public CompactSudoku canonicalForm(final CompactSudoku sudoku) {
+		return CANONICALIZERS.get().canonicalize(sudoku);
+	}
+
+	/**
+	 * generates many games in parallel across the cores of the common pool,
+	 * see makeGames(ForkJoinPool, long, int, int, Consumer)
+	 */
+	public void makeGames(final long seed, final int givens, final int count, final Consumer<Game> consumer) {
+		this.makeGames(ForkJoinPool.commonPool(), seed, givens, count, consumer);
+	}
+
+	/**
+	 * generates many games in parallel with a fork/join pool. The range of
+	 * games is split in tasks stolen by the idle workers, every task draws its
+	 * ids from its own split of the seed and works on a scratch board of its
+	 * thread, so workers share nothing and generation scales with the cores.
+	 * 
+	 * The same seed, givens and count always produce the same games, in no
+	 * particular order
+	 * 
+	 * @param ForkJoinPool
+	 *            pool the pool running the generation
+	 * 
+	 * @param long
+	 *            seed the seed the game ids are drawn from
+	 * 
+	 * @param int
+	 *            givens number of cell filled in every puzzle
+	 * 
+	 * @param int
+	 *            count number of games to generate
+	 * 
+	 * @param Consumer
+	 *            consumer receives every game as soon as it is generated, it
+	 *            is called concurrently by the workers so it must be
+	 *            thread-safe
+	 */
+	public void makeGames(final ForkJoinPool pool, final long seed, final int givens, final int count,
+			final Consumer<Game> consumer) {
+		if (count < 0)
+			throw new IllegalArgumentException("count must not be negative");
+		// validates givens before going parallel
+		Game.toId(0, givens);
+
+		pool.invoke(new GenerationTask(new SplittableRandom(seed), givens, count, consumer));
+	}
+
+	/**
+	 * grades a puzzle by the hardest technique a human needs to solve it, see
+	 * LogicalSolver
+	 * 
+	 * @param CompactSudoku
+	 *            puzzle the puzzle to grade
+	 * 
+	 * @return Technique the hardest technique needed, TRIAL_AND_ERROR if the
+	 *         puzzle can't be solved logically
+	 */
+	public Technique grade(final CompactSudoku puzzle) {
+		return new LogicalSolver(puzzle).solve();
+	}
+
+	/**
+	 * gets the difficulty of a puzzle from its grade
+	 * 
+	 * @param CompactSudoku
+	 *            puzzle the puzzle to grade
+	 * 
+	 * @return Difficulty the difficulty of the puzzle
+	 */
+	public Difficulty difficulty(final CompactSudoku puzzle) {
+		return this.grade(puzzle).getDifficulty();
+	}
+
 	/**
 	 * dig-out and generates a Sudoku puzzle from a given filled Sudoku template
 	 * leaving n givens cells filled
@@ -55,36 +283,183 @@ public class SudokuManager {
 	 * @return Sudoku a new sudoku puzzle generated from template
 	 */
 	public Sudoku puzzle(final Sudoku template, int givens) {
+		return this.puzzle(template, givens, false, new SplittableRandom());
+	}
 
-		Sudoku puzzle = template.clone();
-		HashSet<Cell> cells = new HashSet<Cell>();
+	/**
+	 * dig-out and generates a Sudoku puzzle from a given filled Sudoku template
+	 * leaving n givens cells filled. In unique mode a cell is dug out only if
+	 * the puzzle keeps a unique solution, so the digging stops early if no
+	 * other cell can be removed and the puzzle may have more than n givens
+	 * 
+	 * @param Sudoku
+	 *            template the sudoku template to dig-out
+	 * 
+	 * @param int
+	 *            givens number of cells needs to remain filled
+	 * 
+	 * @param boolean
+	 *            unique whether the puzzle must have a unique solution
+	 * 
+	 * @return Sudoku a new sudoku puzzle generated from template
+	 */
+	public Sudoku puzzle(final Sudoku template, int givens, boolean unique) {
+		return this.puzzle(template, givens, unique, new SplittableRandom());
+	}
+
+	/**
+	 * dig-out and generates a Sudoku puzzle from a given filled Sudoku template
+	 * choosing the cells with a random generator, the same template and
+	 * generator state always produce the same puzzle
+	 * 
+	 * @param Sudoku
+	 *            template the sudoku template to dig-out
+	 * 
+	 * @param int
+	 *            givens number of cells needs to remain filled
+	 * 
+	 * @param boolean
+	 *            unique whether the puzzle must have a unique solution
+	 * 
+	 * @param SplittableRandom
+	 *            random the generator of the random choices
+	 * 
+	 * @return Sudoku a new sudoku puzzle generated from template
+	 */
+	public Sudoku puzzle(final Sudoku template, int givens, boolean unique, final SplittableRandom random) {
 
-		Random rand = new Random();
+		long start = System.nanoTime();
+		if (unique) {
+			Sudoku puzzle = this.puzzleUnique(template, givens, random);
+			this.recordDig(start);
+			return puzzle;
+		}
+
+		Sudoku puzzle = template.clone();
 
-		int cellsToDig = (Sudoku.PUZZLE_SIZE * Sudoku.PUZZLE_SIZE) - givens;
+		int size = puzzle.getSize();
+		int cellsToDig = (size * size) - givens;
+		boolean[] dug = new boolean[size * size];
 
 		for (int i = 0; i < cellsToDig; i++) {
-			Cell cell = null;
+			int row, column;
 			do {
-				cell = puzzle.getCell(rand.nextInt(Sudoku.PUZZLE_SIZE), rand.nextInt(Sudoku.PUZZLE_SIZE));
-			} while (cells.contains(cell));
-			cells.add(cell);
-			cell.reset();
+				row = random.nextInt(size);
+				column = random.nextInt(size);
+			} while (dug[row * size + column]);
+			dug[row * size + column] = true;
+			puzzle.reset(row, column);
 		}
 
 		puzzle.normalize();
+		this.recordDig(start);
+		return puzzle;
+	}
+
+	/**
+	 * digs cells in random order keeping a removal only if the puzzle still
+	 * has a unique solution
+	 */
+	private Sudoku puzzleUnique(final Sudoku template, int givens, final SplittableRandom random) {
+
+		Sudoku puzzle = template.clone();
+		this.digUnique(puzzle, givens, random);
 		return puzzle;
 	}
 
 	/**
-	 * resolve a puzzle starting from the cell at position (0,0)
+	 * digs a filled board in place, see puzzleUnique
+	 */
+	private void digUnique(final Sudoku puzzle, int givens, final SplittableRandom random) {
+
+		int size = puzzle.getSize();
+		int cellsCount = size * size;
+
+		int[] order = new int[cellsCount];
+		for (int i = 0; i < cellsCount; i++) {
+			order[i] = i;
+		}
+		for (int i = cellsCount - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+
+		int filled = cellsCount;
+		for (int i = 0; i < cellsCount && filled > givens; i++) {
+			int row = order[i] / size, column = order[i] % size;
+			int value = puzzle.getValue(row, column);
+
+			puzzle.reset(row, column);
+			if (this.keepsUniqueSolution(puzzle)) {
+				--filled;
+			} else {
+				puzzle.setValue(row, column, value);
+			}
+		}
+
+		puzzle.normalize();
+	}
+
+	/**
+	 * check whether a puzzle being dug still has one solution. The check of
+	 * boards other than 9x9 is bounded: too long a check keeps the cell, so
+	 * the digging of large boards stops early rather than stalling
+	 */
+	private boolean keepsUniqueSolution(final Sudoku puzzle) {
+		if (puzzle.getSize() == Sudoku.PUZZLE_SIZE) {
+			return this.hasUniqueSolution(puzzle);
+		}
+		return sizedSolver.countSolutions(puzzle, 2, DIG_STEPS) == 1;
+	}
+
+	/**
+	 * check whether a puzzle has exactly one solution
+	 * 
+	 * @param Sudoku
+	 *            puzzle the puzzle to check
+	 * 
+	 * @return boolean true if the puzzle has one and only one solution
+	 */
+	public boolean hasUniqueSolution(final Sudoku puzzle) {
+		return this.countSolutions(puzzle, 2) == 1;
+	}
+
+	/**
+	 * counts the solutions of a puzzle with the configured solver backend
+	 * 
+	 * @param Sudoku
+	 *            puzzle the puzzle to check
+	 * 
+	 * @param int
+	 *            limit the number of solutions after which the count stops
+	 * 
+	 * @return int the number of solutions found, never greater than limit
+	 */
+	public int countSolutions(final Sudoku puzzle, int limit) {
+		return this.solverFor(puzzle).countSolutions(puzzle, limit);
+	}
+
+	/**
+	 * resolve a puzzle with the configured solver backend
 	 * 
 	 * @param Sudoku
 	 *            puzzle takes as parameter the puzzle to solve
 	 * 
+	 * @return boolean true if the puzzle has been solved, false if it has no
+	 *         solution
 	 */
-	public void solve(final Sudoku puzzle) {
-		this.solve(puzzle, puzzle.getCell(0, 0));
+	public boolean solve(final Sudoku puzzle) {
+		return this.solverFor(puzzle).solve(puzzle);
+	}
+
+	/**
+	 * gets the backend of a puzzle: the configured one on 9x9 boards, which
+	 * it may be tuned for, the most constrained cell solver on the others
+	 */
+	private SudokuSolver solverFor(final Sudoku puzzle) {
+		return puzzle.getSize() == Sudoku.PUZZLE_SIZE ? solver : sizedSolver;
 	}
 
 	/**
@@ -97,14 +472,30 @@ public class SudokuManager {
 	 *            cell the init cell to start solving the puzzle
 	 */
 	public void solve(final Sudoku sudoku, Cell cell) {
+		this.solve(sudoku, cell, new SplittableRandom());
+	}
+
+	/**
+	 * resolve a puzzle starting from the cell passed as parameter and choosing
+	 * the values with a random generator
+	 * 
+	 * @param Sudoku
+	 *            sudoku the sudoku puzzle to solve
+	 * 
+	 * @param Cell
+	 *            cell the init cell to start solving the puzzle
+	 * 
+	 * @param SplittableRandom
+	 *            random the generator of the random choices
+	 */
+	public void solve(final Sudoku sudoku, Cell cell, final SplittableRandom random) {
 
 		Cell current = cell;
 
 		if (current != null) {
 			if (!current.isFilled()) {
 				try {
-					this.setRandomValue(sudoku, current);
-					// System.out.println(sudoku);
+					this.setRandomValue(sudoku, current, random);
 					current = sudoku.nextCell(current);
 				} catch (ConstraintViolationException e) {
 					current.reset();
@@ -115,17 +506,32 @@ public class SudokuManager {
 						current = sudoku.previousCell(current);
 					}
 					current.clear();
-					// System.out.println(sudoku);
 				}
 			} else {
 				current = sudoku.nextCell(current);
 			}
 
-			solve(sudoku, current);
+			solve(sudoku, current, random);
 		}
 
 	}
 
+	/**
+	 * resolve a puzzle iteratively starting from the cell at position (0,0).
+	 * It explores the cells in the same order and with the same random choices
+	 * of solve(Sudoku, Cell) but with constant stack depth, whatever solver
+	 * backend is configured
+	 * 
+	 * @param Sudoku
+	 *            sudoku the sudoku puzzle to solve
+	 * 
+	 * @return boolean true if the puzzle has been solved, false if it has no
+	 *         solution
+	 */
+	public boolean solveIteratively(final Sudoku sudoku) {
+		return iterativeSolver.solve(sudoku);
+	}
+
 	/**
 	 * sets a random and valid number in a cell of a Sudoku puzzle
 	 * 
@@ -137,8 +543,25 @@ public class SudokuManager {
 	 * 
 	 */
 	public void setRandomValue(final Sudoku sudoku, Cell cell) {
+		this.setRandomValue(sudoku, cell, new SplittableRandom());
+	}
+
+	/**
+	 * sets a random and valid number in a cell of a Sudoku puzzle
+	 * 
+	 * @param Sudoku
+	 *            sudoku the Sudoku to insert a valid number
+	 * 
+	 * @param Cell
+	 *            cell the cell to insert a valid number
+	 * 
+	 * @param SplittableRandom
+	 *            random the generator of the random number
+	 * 
+	 */
+	public void setRandomValue(final Sudoku sudoku, Cell cell, final SplittableRandom random) {
 
-		int randomNumber = this.getConstraintRandomNumber(sudoku, cell);
+		int randomNumber = this.getConstraintRandomNumber(sudoku, cell, random);
 		cell.setValue(randomNumber);
 	}
 
@@ -156,330 +579,336 @@ public class SudokuManager {
 
 	public void checkValidAnswers(final Sudoku sudoku) {
 
-		for (int i = 0; i < Sudoku.PUZZLE_SIZE; i++) {
-			this.isValidRow(sudoku, i);
-		}
+		ValidationResult result = this.validateAnswers(sudoku, true);
 
-		for (int j = 0; j < Sudoku.PUZZLE_SIZE; j++) {
-			this.isValidColumn(sudoku, j);
+		if (!result.isValid()) {
+			throw new ConstraintViolationException(result.getMessage(0));
 		}
+	}
 
-		for (int bi = 0; bi < Sudoku.PUZZLE_SIZE; bi += Sudoku.BLOCK_SIZE) {
-			for (int bj = 0; bj < Sudoku.PUZZLE_SIZE; bj += Sudoku.BLOCK_SIZE) {
-				this.isValidBlock(sudoku, bi, bj);
-			}
-		}
+	/**
+	 * check if the whole Sudoku has a valid solutions collecting all the
+	 * violated units
+	 * 
+	 * @param Sudoku
+	 *            sudoku the Sudoku to check
+	 * 
+	 * @return ValidationResult the violated units, none if the sudoku is valid
+	 */
+	public ValidationResult validateAnswers(final Sudoku sudoku) {
+		return this.validateAnswers(sudoku, false);
 	}
 
 	/**
-	 * utility method to check whether a row in a sudoku is well formed
+	 * check if the whole Sudoku has a valid solutions without throwing
+	 * exceptions. Rows are checked first, then columns and blocks
 	 * 
 	 * @param Sudoku
-	 *            sudoku the Sudoku object to check
+	 *            sudoku the Sudoku to check
 	 * 
-	 * @param int
-	 *            rowIndex the index of the row to check if it's well formed
+	 * @param boolean
+	 *            firstOnly whether to stop at the first violated unit
 	 * 
-	 * @exception ConstraintViolationException
-	 *                if the row is not valid throws an exception with error
-	 *                message
+	 * @return ValidationResult the violated units, none if the sudoku is valid
 	 */
+	public ValidationResult validateAnswers(final Sudoku sudoku, boolean firstOnly) {
 
-	private void isValidRow(final Sudoku sudoku, final int rowIndex) {
-		if (rowIndex >= Sudoku.PUZZLE_SIZE || rowIndex < 0)
-			throw new IllegalArgumentException("column index out of bound");
+		int[][] matrix = sudoku.toArray();
+		ValidationResult result = new ValidationResult(sudoku.getBlockSize());
 
-		HashSet<Integer> numbers = this.generateAllValues();
+		for (int unit = 0; unit < 3 * sudoku.getSize(); unit++) {
+			int offending = this.checkUnit(matrix, sudoku.getBlockSize(), unit);
 
-		for (int j = 0; j < Sudoku.PUZZLE_SIZE; j++) {
-			Cell cell = sudoku.getCell(rowIndex, j);
-			int value = cell.getValue();
-
-			if (!numbers.contains(value)) {
-				throw new ConstraintViolationException(
-						"constraint violation at row " + rowIndex + " : duplicate values (" + value + ")");
+			if (offending != COMPLETE_UNIT) {
+				result.add(unit, offending);
+				if (firstOnly) {
+					break;
+				}
 			}
-
-			numbers.remove(value);
 		}
 
-		if (numbers.size() != 0) {
-			throw new ConstraintViolationException("constraint violation at row " + rowIndex + " : empty values");
-		}
-		;
+		return result;
 	}
 
 	/**
-	 * utility method to check whether a column in a sudoku is well formed
-	 * 
-	 * @param Sudoku
-	 *            sudoku the Sudoku object to check
-	 * 
-	 * @param int
-	 *            columnIndex the index of the column to check if it's well
-	 *            formed
-	 * 
-	 *            * @exception ConstraintViolationException if the column is not
-	 *            valid throws an exception with error message
+	 * check if a matrix is a filled and valid Sudoku without allocating
+	 * anything, reporting the first violated unit as a code: rows are 0-8,
+	 * columns 9-17 and blocks 18-26 (left to right and top to bottom) on a 9x9
+	 * board, 0-15, 16-31 and 32-47 on a 16x16 one and so on
+	 * 
+	 * @param int[][]
+	 *            matrix the matrix that represents the sudoku grid, 4x4 to
+	 *            25x25
+	 * 
+	 * @return int VALID_ANSWERS if the sudoku is valid, MALFORMED_BOARD if the
+	 *         matrix is not a square board of a supported size, the code of
+	 *         the first violated unit otherwise
 	 */
-	private void isValidColumn(final Sudoku sudoku, final int columnIndex) {
-		if (columnIndex >= Sudoku.PUZZLE_SIZE || columnIndex < 0)
-			throw new IllegalArgumentException("column index out of bound");
-
-		HashSet<Integer> numbers = this.generateAllValues();
+	public int findViolatedUnit(final int[][] matrix) {
 
-		for (int i = 0; i < Sudoku.PUZZLE_SIZE; i++) {
-			Cell cell = sudoku.getCell(i, columnIndex);
-			int value = cell.getValue();
-
-			if (!numbers.contains(value)) {
-				throw new ConstraintViolationException(
-						"constraint violation at column " + columnIndex + " : duplicate values (" + value + ")");
+		if (matrix == null) {
+			return MALFORMED_BOARD;
+		}
+		int size = matrix.length;
+		int blockSize = (int) Math.sqrt(size);
+		if (blockSize < Sudoku.MIN_BLOCK_SIZE || blockSize > Sudoku.MAX_BLOCK_SIZE || blockSize * blockSize != size) {
+			return MALFORMED_BOARD;
+		}
+		for (int i = 0; i < size; i++) {
+			if (matrix[i] == null || matrix[i].length != size) {
+				return MALFORMED_BOARD;
 			}
-
-			numbers.remove(value);
 		}
 
-		if (numbers.size() != 0) {
-			throw new ConstraintViolationException("constraint violation at column " + columnIndex + " : empty values");
+		for (int unit = 0; unit < 3 * size; unit++) {
+			if (this.checkUnit(matrix, blockSize, unit) != COMPLETE_UNIT) {
+				return unit;
+			}
 		}
-		;
+
+		return VALID_ANSWERS;
 	}
 
 	/**
-	 * utility method to check if a block grid in the puzzle is valid
+	 * checks a single unit of a square matrix, the primitive behind
+	 * findViolatedUnit and validateAnswers. The cells of the unit are walked
+	 * in reading order, width cells per row: a whole row, a single column
+	 * cell or a block row
 	 * 
-	 * @param Sudoku
-	 *            sudoku the Sudoku object to check
+	 * @param int[][]
+	 *            matrix the matrix that represents the sudoku grid
 	 * 
 	 * @param int
-	 *            rowStartIndex the index row of a block
+	 *            blockSize the side of the blocks of the matrix
 	 * 
 	 * @param int
-	 *            columnStartIndex the index column of a block
+	 *            unit the code of the unit (rows 0-8, columns 9-17, blocks
+	 *            18-26 on a 9x9 board)
 	 * 
-	 *            * @exception ConstraintViolationException if the block is not
-	 *            valid throws an exception with error message
+	 * @return int COMPLETE_UNIT if the unit holds every value once, the first
+	 *         duplicate value, 0 if an empty or out of range cell comes first
 	 */
+	private int checkUnit(final int[][] matrix, final int blockSize, final int unit) {
+		int size = matrix.length;
+		int index = unit % size;
+		int row, column, width;
+
+		switch (unit / size) {
+		case 0:
+			row = index;
+			column = 0;
+			width = size;
+			break;
+		case 1:
+			row = 0;
+			column = index;
+			width = 1;
+			break;
+		default:
+			row = (index / blockSize) * blockSize;
+			column = (index % blockSize) * blockSize;
+			width = blockSize;
+		}
 
-	private void isValidBlock(final Sudoku sudoku, final int rowStartIndex, final int columnStartIndex) {
-		if (rowStartIndex >= Sudoku.PUZZLE_SIZE || rowStartIndex < 0)
-			throw new IllegalArgumentException("column index out of bound");
-		if (columnStartIndex >= Sudoku.PUZZLE_SIZE || columnStartIndex < 0)
-			throw new IllegalArgumentException("column index out of bound");
-		if (rowStartIndex % Sudoku.BLOCK_SIZE != 0)
-			throw new IllegalArgumentException("row is not a start index");
-		if (columnStartIndex % Sudoku.BLOCK_SIZE != 0)
-			throw new IllegalArgumentException("column is not a start index");
-
-		HashSet<Integer> numbers = this.generateAllValues();
-
-		for (int i = rowStartIndex; i < rowStartIndex + Sudoku.BLOCK_SIZE; i++) {
-			for (int j = columnStartIndex; j < columnStartIndex + Sudoku.BLOCK_SIZE; j++) {
-				Cell cell = sudoku.getCell(i, j);
-				int value = cell.getValue();
-
-				if (!numbers.contains(value)) {
-					throw new ConstraintViolationException("constraint violation at block[" + rowStartIndex + ","
-							+ columnStartIndex + "] : duplicate values (" + value + ")");
-				}
+		int first = column;
+		int used = 0;
+		for (int k = 0, x = 0; k < size; k++) {
+			int value = matrix[row][column];
+			if (++x == width) {
+				x = 0;
+				++row;
+				column = first;
+			} else {
+				++column;
+			}
 
-				numbers.remove(value);
+			if (value < 1 || value > size) {
+				// an empty or out of range cell, the unit can't hold every
+				// value
+				return 0;
+			}
+			if ((used & ConstraintMasks.bit(value)) != 0) {
+				return value;
 			}
+			used |= ConstraintMasks.bit(value);
 		}
 
-		if (numbers.size() != 0) {
-			throw new ConstraintViolationException(
-					"constraint violation at block[" + rowStartIndex + "," + columnStartIndex + "] : empty values");
-		}
+		return COMPLETE_UNIT;
 	}
 
 	/**
-	 * generate a valid number to be solution for a cell in the sudoku puzzle
+	 * check many matrices in parallel across the cores of the common pool, see
+	 * findViolatedUnits(ForkJoinPool, int[][][], int, int[])
+	 */
+	public void findViolatedUnits(final int[][][] boards, final int count, final int[] results) {
+		this.findViolatedUnits(ForkJoinPool.commonPool(), boards, count, results);
+	}
+
+	/**
+	 * check many matrices in parallel on a pool, storing for each of them the
+	 * result of findViolatedUnit. The calling thread waits for the whole
+	 * check
 	 * 
-	 * @param Sudoku
-	 *            sudoku the context sodoku puzzle
+	 * @param ForkJoinPool
+	 *            pool the pool running the checks
 	 * 
-	 * @param Cell
-	 *            cell the cell where the number will be inserted
+	 * @param int[][][]
+	 *            boards the matrices to check
 	 * 
-	 * @return int return the generated valid number
+	 * @param int
+	 *            count the number of matrices to check from the beginning of
+	 *            boards
+	 * 
+	 * @param int[]
+	 *            results the array receiving the result of each matrix
 	 */
+	public void findViolatedUnits(final ForkJoinPool pool, final int[][][] boards, final int count,
+			final int[] results) {
+		pool.invoke(new ValidationTask(boards, results, 0, count));
+	}
 
-	private int getConstraintRandomNumber(final Sudoku sudoku, Cell cell) {
-
-		HashSet<Integer> constraintNumbers = this.generateAllValues();
-
-		this.filterConstraintRowNumbers(sudoku, cell, constraintNumbers);
-		this.filterConstraintColumnNumbers(sudoku, cell, constraintNumbers);
-		this.filterConstraintBlockNumbers(sudoku, cell, constraintNumbers);
+	/**
+	 * gets a human readable name of a unit code, e.g. "column 4"
+	 * 
+	 * @param int
+	 *            unit the unit code
+	 * 
+	 * @return String the name of the unit
+	 */
+	public static String unitName(final int unit) {
+		if (unit < 0 || unit >= 3 * Sudoku.PUZZLE_SIZE)
+			throw new IllegalArgumentException("unit code out of bound");
 
-		constraintNumbers.removeAll(cell.getTriedValues());
+		String[] kinds = { "row", "column", "block" };
+		return kinds[unit / Sudoku.PUZZLE_SIZE] + " " + unit % Sudoku.PUZZLE_SIZE;
+	}
 
-		if (constraintNumbers.size() != 0) {
-			Integer[] array = constraintNumbers.toArray(new Integer[constraintNumbers.size()]);
-			int randomIndex = 0;
+	/**
+	 * fork/join task checking a range of matrices
+	 */
+	private final class ValidationTask extends RecursiveAction {
 
-			if (constraintNumbers.size() != 1) {
-				Random rand = new Random();
-				randomIndex = rand.nextInt(constraintNumbers.size());
-			}
+		private static final int THRESHOLD = 64;
 
-			return array[randomIndex];
+		private final int[][][] boards;
+		private final int[] results;
+		private final int from;
+		private final int to;
 
+		ValidationTask(final int[][][] boards, final int[] results, final int from, final int to) {
+			this.boards = boards;
+			this.results = results;
+			this.from = from;
+			this.to = to;
 		}
 
-		throw new ConstraintViolationException(
-				"not able to find a valid number for cell [" + cell.getRow() + "," + cell.getColumn() + "]");
-	}
-
-	/**
-	 * filters possible valid numbers from all the number used in the same row
-	 * of the given cell
-	 * 
-	 * @param Sudoku
-	 *            sudoku the context Sudoku
-	 * 
-	 * @param Cell
-	 *            cell the reference cell
-	 * 
-	 * @param HashSet<Integer>
-	 *            constraintNumbers possible numbers that can be filtered
-	 * 
-	 * @return HashSet<Integer> constraintNumbers set of filtered numbers
-	 * 
-	 */
-	private HashSet<Integer> filterConstraintRowNumbers(final Sudoku sudoku, final Cell cell,
-			HashSet<Integer> constraintNumbers) {
-		if (constraintNumbers.size() != 0) {
-			for (int j = 0; j < Sudoku.PUZZLE_SIZE; j++) {
-				Cell c = sudoku.getCell(cell.getRow(), j);
-				if (c.isFilled()) {
-					constraintNumbers.remove(c.getValue());
+		@Override
+		protected void compute() {
+			if (to - from <= THRESHOLD) {
+				for (int i = from; i < to; i++) {
+					results[i] = findViolatedUnit(boards[i]);
 				}
+				return;
 			}
+
+			int middle = (from + to) >>> 1;
+			invokeAll(new ValidationTask(boards, results, from, middle),
+					new ValidationTask(boards, results, middle, to));
 		}
-		return constraintNumbers;
 	}
 
 	/**
-	 * filters possible valid numbers from all the number used in the same
-	 * column of the given cell
-	 * 
-	 * @param Sudoku
-	 *            sudoku the context Sudoku
-	 * 
-	 * @param Cell
-	 *            cell the reference cell
-	 * 
-	 * @param HashSet<Integer>
-	 *            constraintNumbers possible numbers that can be filtered
-	 * 
-	 * @return HashSet<Integer> constraintNumbers set of filtered numbers
-	 * 
+	 * fork/join task generating a range of games, halving the range and
+	 * splitting the random generator until the range is small enough
 	 */
-	private HashSet<Integer> filterConstraintColumnNumbers(final Sudoku sudoku, final Cell cell,
-			HashSet<Integer> constraintNumbers) {
+	private final class GenerationTask extends RecursiveAction {
+
+		private static final int THRESHOLD = 16;
 
-		if (constraintNumbers.size() != 0) {
-			for (int index = 0; index < Sudoku.PUZZLE_SIZE; index++) {
-				Cell c = sudoku.getCell(index, cell.getColumn());
-				if (c.isFilled()) {
-					constraintNumbers.remove(c.getValue());
+		private final SplittableRandom random;
+		private final int givens;
+		private final int count;
+		private final Consumer<Game> consumer;
+
+		GenerationTask(final SplittableRandom random, final int givens, final int count,
+				final Consumer<Game> consumer) {
+			this.random = random;
+			this.givens = givens;
+			this.count = count;
+			this.consumer = consumer;
+		}
+
+		@Override
+		protected void compute() {
+			if (count <= THRESHOLD) {
+				Sudoku scratch = SCRATCH.get();
+				for (int i = 0; i < count; i++) {
+					consumer.accept(makeGame(Game.toId(random.nextLong(), givens), scratch));
 				}
+				return;
 			}
-		}
 
-		return constraintNumbers;
+			int half = count >>> 1;
+			invokeAll(new GenerationTask(random.split(), givens, half, consumer),
+					new GenerationTask(random, givens, count - half, consumer));
+		}
 	}
 
 	/**
-	 * filters possible valid numbers from all the number used in the same block
-	 * of the given cell
+	 * generate a valid number to be solution for a cell in the sudoku puzzle
 	 * 
 	 * @param Sudoku
-	 *            sudoku the context Sudoku
+	 *            sudoku the context sodoku puzzle
 	 * 
 	 * @param Cell
-	 *            cell the reference cell
-	 * 
-	 * @param HashSet<Integer>
-	 *            constraintNumbers possible numbers that can be filtered
+	 *            cell the cell where the number will be inserted
 	 * 
-	 * @return HashSet<Integer> constraintNumbers set of filtered numbers
+	 * @param SplittableRandom
+	 *            random the generator of the random number
 	 * 
+	 * @return int return the generated valid number
 	 */
-	private HashSet<Integer> filterConstraintBlockNumbers(final Sudoku sudoku, final Cell cell,
-			HashSet<Integer> constraintNumbers) {
 
-		if (constraintNumbers.size() != 0) {
-			int blockRowIndex = this.getBlockRowIndex(sudoku, cell.getRow());
-			int blockColumnIndex = this.getBlockColumnIndex(sudoku, cell.getColumn());
+	private int getConstraintRandomNumber(final Sudoku sudoku, Cell cell, final SplittableRandom random) {
 
-			for (int i = blockRowIndex; i < blockRowIndex + Sudoku.BLOCK_SIZE && i < Sudoku.PUZZLE_SIZE; i++) {
-				for (int j = blockColumnIndex; j < blockColumnIndex + Sudoku.BLOCK_SIZE
-						&& j < Sudoku.PUZZLE_SIZE; j++) {
+		int candidates = sudoku.getConstraints().candidates(cell.getRow(), cell.getColumn()) & ~cell.getTriedMask();
 
-					Cell c = sudoku.getCell(i, j);
-					if (c.isFilled()) {
-						constraintNumbers.remove(c.getValue());
-					}
+		if (candidates != 0) {
+			return BacktrackingSolver.getRandomValue(candidates, random);
+		}
 
-				}
-			}
+		throw new ConstraintViolationException(
+				"not able to find a valid number for cell [" + cell.getRow() + "," + cell.getColumn() + "]");
+	}
+
+	private void recordFill(final long start) {
+		if (metrics != null) {
+			metrics.getFills().record(System.nanoTime() - start);
 		}
+	}
 
-		return constraintNumbers;
+	private void recordDig(final long start) {
+		if (metrics != null) {
+			metrics.getDigs().record(System.nanoTime() - start);
+		}
 	}
 
-	/**
-	 * Utility function to get the top-left row index of a block where the given
-	 * row index lives
-	 * 
-	 * @param Sudoku
-	 *            sudoku the context sudoku
-	 * 
-	 * @param int
-	 *            rowIndex the reference row index to get the top-left block row
-	 *            index
-	 * 
-	 * @return int the top-left block row index
-	 */
-	private int getBlockRowIndex(final Sudoku sudoku, final int rowIndex) {
-		return (rowIndex / Sudoku.BLOCK_SIZE) * Sudoku.BLOCK_SIZE;
+	public SudokuSolver getSolver() {
+		return solver;
 	}
 
-	/**
-	 * Utility function to get the top-left column index of a block where the
-	 * given column index lives
-	 * 
-	 * @param Sudoku
-	 *            sudoku the context sudoku
-	 * 
-	 * @param int
-	 *            rowIndex the reference column index to get the top-left block
-	 *            row index
-	 * 
-	 * @return int the top-left block column index
-	 */
-	private int getBlockColumnIndex(final Sudoku sudoku, final int columnIndex) {
-		return (columnIndex / Sudoku.BLOCK_SIZE) * Sudoku.BLOCK_SIZE;
+	public void setSolver(SudokuSolver solver) {
+		this.solver = solver;
 	}
 
-	/**
-	 * Utility function to generate all the possible valid value for a Sudoku
-	 * cell
-	 * 
-	 * 
-	 * @return HashSet<Integer> set of possible valid numbers
-	 */
-	private HashSet<Integer> generateAllValues() {
-		HashSet<Integer> numbers = new HashSet<Integer>(9);
-		for (int i = 1; i <= 9; i++) {
-			numbers.add(i);
-		}
+	public Metrics getMetrics() {
+		return metrics;
+	}
 
-		return numbers;
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+		iterativeSolver.setMetrics(metrics);
+		sizedSolver.setMetrics(metrics);
 	}
 
 }
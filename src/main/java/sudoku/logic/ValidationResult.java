@@ -0,0 +1,128 @@
+package sudoku.logic;
+
+/**
+ * ValidationResult holds the units (rows, columns and blocks) violated by a
+ * Sudoku as primitive codes, so that checking a wrong answer costs no
+ * exception.
+ *
+ * Unit codes are 0-8 for rows, 9-17 for columns and 18-26 for blocks (left to
+ * right and top to bottom) on a 9x9 board, 0-15, 16-31 and 32-47 on a 16x16
+ * one and so on. Every violation also records the offending value:
+ * the first duplicate value found in the unit, or 0 if an empty (or out of
+ * range) cell is found first and the unit misses some values.
+ *
+ * The units are checked by the same primitive behind
+ * SudokuManager.findViolatedUnit, this class only collects its results
+ */
+public class ValidationResult {
+
+	// units of the classic board
+	public static final int UNITS = 3 * Sudoku.PUZZLE_SIZE;
+
+	private final int blockSize;
+	private final int[] units;
+	private final int[] values;
+	private int count;
+
+	public ValidationResult() {
+		this(Sudoku.BLOCK_SIZE);
+	}
+
+	/**
+	 * @param int
+	 *            blockSize the side of the blocks of the board
+	 */
+	ValidationResult(final int blockSize) {
+		this.blockSize = blockSize;
+		units = new int[3 * blockSize * blockSize];
+		values = new int[units.length];
+	}
+
+	/**
+	 * records a violated unit
+	 *
+	 * @param int
+	 *            unit the code of the violated unit
+	 * @param int
+	 *            value the offending value, 0 if the unit misses some values
+	 */
+	void add(final int unit, final int value) {
+		units[count] = unit;
+		values[count] = value;
+		++count;
+	}
+
+	public boolean isValid() {
+		return count == 0;
+	}
+
+	/**
+	 * gets the number of violated units
+	 */
+	public int getViolationsCount() {
+		return count;
+	}
+
+	/**
+	 * gets the code of the n-th violated unit
+	 */
+	public int getUnit(final int index) {
+		if (index >= count || index < 0)
+			throw new IllegalArgumentException("violation index out of bound");
+
+		return units[index];
+	}
+
+	/**
+	 * gets the offending value of the n-th violated unit, 0 if the unit misses
+	 * some values
+	 */
+	public int getValue(final int index) {
+		if (index >= count || index < 0)
+			throw new IllegalArgumentException("violation index out of bound");
+
+		return values[index];
+	}
+
+	/**
+	 * gets the code of the first violated unit or -1 if the Sudoku is valid
+	 */
+	public int getFirstUnit() {
+		return count == 0 ? -1 : units[0];
+	}
+
+	/**
+	 * gets the codes of all the violated units
+	 */
+	public int[] getUnits() {
+		int[] copy = new int[count];
+		System.arraycopy(units, 0, copy, 0, count);
+		return copy;
+	}
+
+	/**
+	 * gets the error message describing the n-th violated unit
+	 */
+	public String getMessage(final int index) {
+		int unit = this.getUnit(index);
+		int value = this.getValue(index);
+		int size = blockSize * blockSize;
+		int position = unit % size;
+
+		String where;
+		switch (unit / size) {
+		case 0:
+			where = "row " + position;
+			break;
+		case 1:
+			where = "column " + position;
+			break;
+		default:
+			where = "block[" + (position / blockSize) * blockSize + "," + (position % blockSize) * blockSize + "]";
+		}
+
+		return "constraint violation at " + where + " : "
+				+ (value == 0 ? "empty values" : "duplicate values (" + value + ")");
+	}
+
+}
@@ -0,0 +1,27 @@
+package sudoku.logic.grading;
+
+/**
+ * difficulty of a puzzle, given by the hardest technique needed to solve it
+ */
+public enum Difficulty {
+
+	EASY, MEDIUM, HARD, EXPERT;
+
+	/**
+	 * gets the difficulty from its name ignoring the case
+	 * 
+	 * @param String
+	 *            name the name of the difficulty, e.g. "hard"
+	 * 
+	 * @return Difficulty the difficulty
+	 */
+	public static Difficulty parse(final String name) {
+		for (Difficulty difficulty : values()) {
+			if (difficulty.name().equalsIgnoreCase(name)) {
+				return difficulty;
+			}
+		}
+		throw new IllegalArgumentException("unknown difficulty " + name);
+	}
+
+}
@@ -0,0 +1,413 @@
+package sudoku.logic.grading;
+
+import sudoku.logic.CompactSudoku;
+import sudoku.logic.ConstraintMasks;
+import sudoku.logic.Sudoku;
+
+/**
+ * LogicalSolver solves a puzzle the way a human does, propagating candidate
+ * masks with the techniques of Technique from the simplest to the hardest and
+ * going back to the simplest after every progress. The hardest technique
+ * applied grades the puzzle.
+ *
+ * Candidates are kept as 9-bit masks per cell (bit n-1 for value n), so
+ * grading a puzzle takes tens of microseconds
+ */
+public class LogicalSolver {
+
+	private static final int SIZE = Sudoku.PUZZLE_SIZE;
+	private static final int CELLS = CompactSudoku.CELLS;
+	private static final int UNITS_COUNT = 3 * SIZE;
+
+	// cells of every unit: rows 0-8, columns 9-17, blocks 18-26
+	static final int[][] UNITS = new int[UNITS_COUNT][SIZE];
+	// the 20 cells sharing a unit with every cell
+	static final int[][] PEERS = new int[CELLS][20];
+
+	static {
+		for (int i = 0; i < SIZE; i++) {
+			for (int k = 0; k < SIZE; k++) {
+				UNITS[i][k] = i * SIZE + k;
+				UNITS[SIZE + i][k] = k * SIZE + i;
+				int row = (i / Sudoku.BLOCK_SIZE) * Sudoku.BLOCK_SIZE + k / Sudoku.BLOCK_SIZE;
+				int column = (i % Sudoku.BLOCK_SIZE) * Sudoku.BLOCK_SIZE + k % Sudoku.BLOCK_SIZE;
+				UNITS[2 * SIZE + i][k] = row * SIZE + column;
+			}
+		}
+
+		for (int cell = 0; cell < CELLS; cell++) {
+			int row = cell / SIZE, column = cell % SIZE;
+			int count = 0;
+			for (int other = 0; other < CELLS; other++) {
+				int r = other / SIZE, c = other % SIZE;
+				if (other != cell && (r == row || c == column
+						|| ConstraintMasks.block(r, c) == ConstraintMasks.block(row, column))) {
+					PEERS[cell][count++] = other;
+				}
+			}
+		}
+	}
+
+	private final int[] values = new int[CELLS];
+	private final int[] candidates = new int[CELLS];
+	private int empty;
+	private boolean broken;
+
+	public LogicalSolver(final CompactSudoku puzzle) {
+		for (int cell = 0; cell < CELLS; cell++) {
+			candidates[cell] = ConstraintMasks.ALL_VALUES;
+		}
+		empty = CELLS;
+		for (int cell = 0; cell < CELLS; cell++) {
+			int value = puzzle.getValue(cell);
+			if (value != 0) {
+				this.place(cell, value);
+			}
+		}
+	}
+
+	/**
+	 * solves the puzzle as far as the techniques allow
+	 *
+	 * @return Technique the hardest technique applied, TRIAL_AND_ERROR if the
+	 *         puzzle can't be solved logically
+	 */
+	public Technique solve() {
+		Technique hardest = Technique.NAKED_SINGLE;
+
+		while (empty > 0 && !broken) {
+			Technique applied = this.step();
+			if (applied == null) {
+				return Technique.TRIAL_AND_ERROR;
+			}
+			if (applied.compareTo(hardest) > 0) {
+				hardest = applied;
+			}
+		}
+
+		return broken ? Technique.TRIAL_AND_ERROR : hardest;
+	}
+
+	/**
+	 * applies the simplest technique making some progress
+	 *
+	 * @return Technique the technique applied or null if none of them makes
+	 *         progress
+	 */
+	public Technique step() {
+		if (this.nakedSingle()) {
+			return Technique.NAKED_SINGLE;
+		}
+		if (this.hiddenSingle()) {
+			return Technique.HIDDEN_SINGLE;
+		}
+		if (this.nakedPair()) {
+			return Technique.NAKED_PAIR;
+		}
+		if (this.pointing()) {
+			return Technique.POINTING;
+		}
+		if (this.boxLineReduction()) {
+			return Technique.BOX_LINE_REDUCTION;
+		}
+		if (this.hiddenPair()) {
+			return Technique.HIDDEN_PAIR;
+		}
+		if (this.xWing()) {
+			return Technique.X_WING;
+		}
+		return null;
+	}
+
+	public boolean isSolved() {
+		return empty == 0 && !broken;
+	}
+
+	public int getValue(final int cell) {
+		return values[cell];
+	}
+
+	public int getCandidates(final int cell) {
+		return candidates[cell];
+	}
+
+	/**
+	 * sets a value in a cell and removes it from the candidates of its peers
+	 */
+	private void place(final int cell, final int value) {
+		int bit = ConstraintMasks.bit(value);
+		if ((candidates[cell] & bit) == 0) {
+			broken = true;
+		}
+
+		values[cell] = value;
+		candidates[cell] = 0;
+		--empty;
+
+		for (int peer : PEERS[cell]) {
+			this.eliminate(peer, bit);
+		}
+	}
+
+	/**
+	 * removes candidates from an empty cell
+	 *
+	 * @return boolean true if some candidate has been removed
+	 */
+	private boolean eliminate(final int cell, final int mask) {
+		if (values[cell] != 0 || (candidates[cell] & mask) == 0) {
+			return false;
+		}
+		candidates[cell] &= ~mask;
+		if (candidates[cell] == 0) {
+			broken = true;
+		}
+		return true;
+	}
+
+	/**
+	 * a cell with only one candidate takes it
+	 */
+	private boolean nakedSingle() {
+		boolean progress = false;
+		for (int cell = 0; cell < CELLS && !broken; cell++) {
+			int mask = candidates[cell];
+			if (values[cell] == 0 && Integer.bitCount(mask) == 1) {
+				this.place(cell, Integer.numberOfTrailingZeros(mask) + 1);
+				progress = true;
+			}
+		}
+		return progress;
+	}
+
+	/**
+	 * a value that fits only one cell of a unit goes there
+	 */
+	private boolean hiddenSingle() {
+		for (int[] unit : UNITS) {
+			// values seen at least once and at least twice in the unit
+			int once = 0, twice = 0, placed = 0;
+			for (int cell : unit) {
+				twice |= once & candidates[cell];
+				once |= candidates[cell];
+				placed |= values[cell] != 0 ? ConstraintMasks.bit(values[cell]) : 0;
+			}
+
+			int singles = once & ~twice & ~placed;
+			if (singles != 0) {
+				int bit = singles & -singles;
+				for (int cell : unit) {
+					if ((candidates[cell] & bit) != 0) {
+						this.place(cell, Integer.numberOfTrailingZeros(bit) + 1);
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * two cells of a unit with the same two candidates remove them from the
+	 * rest of the unit
+	 */
+	private boolean nakedPair() {
+		boolean progress = false;
+		for (int[] unit : UNITS) {
+			for (int i = 0; i < SIZE; i++) {
+				int mask = candidates[unit[i]];
+				if (Integer.bitCount(mask) != 2) {
+					continue;
+				}
+				for (int j = i + 1; j < SIZE; j++) {
+					if (candidates[unit[j]] != mask) {
+						continue;
+					}
+					for (int k = 0; k < SIZE; k++) {
+						if (k != i && k != j) {
+							progress |= this.eliminate(unit[k], mask);
+						}
+					}
+				}
+			}
+			if (progress) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * a value confined to one row (or column) inside a block is removed from
+	 * the rest of that row (or column)
+	 */
+	private boolean pointing() {
+		boolean progress = false;
+		for (int block = 0; block < SIZE; block++) {
+			int[] cells = UNITS[2 * SIZE + block];
+			for (int value = 1; value <= SIZE; value++) {
+				int bit = ConstraintMasks.bit(value);
+				int rows = 0, columns = 0;
+				for (int cell : cells) {
+					if ((candidates[cell] & bit) != 0) {
+						rows |= 1 << (cell / SIZE);
+						columns |= 1 << (cell % SIZE);
+					}
+				}
+
+				if (Integer.bitCount(rows) == 1) {
+					progress |= this.eliminateOutside(UNITS[Integer.numberOfTrailingZeros(rows)], block, bit);
+				}
+				if (Integer.bitCount(columns) == 1) {
+					progress |= this.eliminateOutside(UNITS[SIZE + Integer.numberOfTrailingZeros(columns)], block,
+							bit);
+				}
+			}
+			if (progress) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * a value confined to one block inside a row (or column) is removed from
+	 * the rest of that block
+	 */
+	private boolean boxLineReduction() {
+		boolean progress = false;
+		for (int line = 0; line < 2 * SIZE; line++) {
+			for (int value = 1; value <= SIZE; value++) {
+				int bit = ConstraintMasks.bit(value);
+				int blocks = 0;
+				for (int cell : UNITS[line]) {
+					if ((candidates[cell] & bit) != 0) {
+						blocks |= 1 << ConstraintMasks.block(cell / SIZE, cell % SIZE);
+					}
+				}
+
+				if (Integer.bitCount(blocks) == 1) {
+					int block = Integer.numberOfTrailingZeros(blocks);
+					for (int cell : UNITS[2 * SIZE + block]) {
+						if (!this.inLine(cell, line)) {
+							progress |= this.eliminate(cell, bit);
+						}
+					}
+				}
+			}
+			if (progress) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * two values that fit only the same two cells of a unit remove all the
+	 * other candidates of those cells
+	 */
+	private boolean hiddenPair() {
+		boolean progress = false;
+		for (int[] unit : UNITS) {
+			// positions in the unit of every value, as 9-bit masks
+			int[] positions = new int[SIZE];
+			for (int k = 0; k < SIZE; k++) {
+				int mask = candidates[unit[k]];
+				while (mask != 0) {
+					int bit = mask & -mask;
+					positions[Integer.numberOfTrailingZeros(bit)] |= 1 << k;
+					mask ^= bit;
+				}
+			}
+
+			for (int a = 0; a < SIZE; a++) {
+				if (Integer.bitCount(positions[a]) != 2) {
+					continue;
+				}
+				for (int b = a + 1; b < SIZE; b++) {
+					if (positions[b] != positions[a]) {
+						continue;
+					}
+					int pair = (1 << a) | (1 << b);
+					int where = positions[a];
+					while (where != 0) {
+						int k = Integer.numberOfTrailingZeros(where);
+						progress |= this.eliminate(unit[k], ~pair & ConstraintMasks.ALL_VALUES);
+						where &= where - 1;
+					}
+				}
+			}
+			if (progress) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * a value with only two places in each of two rows, in the same two
+	 * columns, is removed from the rest of those columns (and vice versa)
+	 */
+	private boolean xWing() {
+		for (int value = 1; value <= SIZE; value++) {
+			int bit = ConstraintMasks.bit(value);
+			// 0 for rows as base lines, SIZE for columns
+			for (int base = 0; base <= SIZE; base += SIZE) {
+				int[] positions = new int[SIZE];
+				for (int line = 0; line < SIZE; line++) {
+					for (int k = 0; k < SIZE; k++) {
+						if ((candidates[UNITS[base + line][k]] & bit) != 0) {
+							positions[line] |= 1 << k;
+						}
+					}
+				}
+
+				for (int a = 0; a < SIZE; a++) {
+					if (Integer.bitCount(positions[a]) != 2) {
+						continue;
+					}
+					for (int b = a + 1; b < SIZE; b++) {
+						if (positions[b] != positions[a]) {
+							continue;
+						}
+
+						boolean progress = false;
+						int cover = base == 0 ? SIZE : 0;
+						int where = positions[a];
+						while (where != 0) {
+							int k = Integer.numberOfTrailingZeros(where);
+							for (int l = 0; l < SIZE; l++) {
+								if (l != a && l != b) {
+									progress |= this.eliminate(UNITS[cover + k][l], bit);
+								}
+							}
+							where &= where - 1;
+						}
+						if (progress) {
+							return true;
+						}
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * removes a candidate from the cells of a line outside a block
+	 */
+	private boolean eliminateOutside(final int[] line, final int block, final int bit) {
+		boolean progress = false;
+		for (int cell : line) {
+			if (ConstraintMasks.block(cell / SIZE, cell % SIZE) != block) {
+				progress |= this.eliminate(cell, bit);
+			}
+		}
+		return progress;
+	}
+
+	private boolean inLine(final int cell, final int line) {
+		return line < SIZE ? cell / SIZE == line : cell % SIZE == line - SIZE;
+	}
+
+}
@@ -0,0 +1,28 @@
+package sudoku.logic.grading;
+
+/**
+ * solving techniques of the logical solver, from the simplest to the hardest
+ */
+public enum Technique {
+
+	NAKED_SINGLE(Difficulty.EASY),
+	HIDDEN_SINGLE(Difficulty.EASY),
+	NAKED_PAIR(Difficulty.MEDIUM),
+	POINTING(Difficulty.MEDIUM),
+	BOX_LINE_REDUCTION(Difficulty.MEDIUM),
+	HIDDEN_PAIR(Difficulty.HARD),
+	X_WING(Difficulty.HARD),
+	// the puzzle can't be solved with the techniques above
+	TRIAL_AND_ERROR(Difficulty.EXPERT);
+
+	private final Difficulty difficulty;
+
+	private Technique(final Difficulty difficulty) {
+		this.difficulty = difficulty;
+	}
+
+	public Difficulty getDifficulty() {
+		return difficulty;
+	}
+
+}
@@ -0,0 +1,90 @@
+package sudoku.logic.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram counts values, usually durations in nanoseconds, in log-linear
+ * buckets the way HdrHistogram does: every power of two is split in 16
+ * buckets, so a value is known within 1/16 of itself, from a nanosecond to
+ * about 18 minutes, in a fixed array of counters. Recording a value is an
+ * index computation from its leading bit and an atomic increment, no lock and
+ * no allocation, so it can be called on every request
+ */
+public class Histogram {
+
+	private static final int SUB_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	// values of 2^MAX_BITS or more are counted in the last bucket
+	private static final int MAX_BITS = 40;
+	static final int BUCKETS = (MAX_BITS - SUB_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder sum = new LongAdder();
+
+	/**
+	 * counts a value
+	 * 
+	 * @param long
+	 *            value the value, negative values are counted as 0
+	 */
+	public void record(final long value) {
+		long positive = Math.max(value, 0);
+		counts.incrementAndGet(index(positive));
+		sum.add(positive);
+	}
+
+	/**
+	 * copies the counts of the buckets, the copy is not atomic but every
+	 * bucket is read once
+	 * 
+	 * @return long[] the count of every bucket
+	 */
+	public long[] snapshot() {
+		long[] snapshot = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * gets the sum of the recorded values
+	 */
+	public long getSum() {
+		return sum.sum();
+	}
+
+	/**
+	 * gets the bucket of a value: values below 16 have a bucket each, then
+	 * the 4 bits after the leading one select one of the 16 buckets of its
+	 * power of two
+	 */
+	static int index(final long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if (exponent >= MAX_BITS) {
+			return BUCKETS - 1;
+		}
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * gets the highest value counted in a bucket
+	 */
+	static long highestValue(final int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		if (index == BUCKETS - 1) {
+			return Long.MAX_VALUE;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long sub = index % SUB_BUCKETS;
+		return ((SUB_BUCKETS + sub + 1) << shift) - 1;
+	}
+
+}
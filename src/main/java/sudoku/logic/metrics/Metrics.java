@@ -0,0 +1,188 @@
+package sudoku.logic.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import sudoku.logic.grading.Difficulty;
+import sudoku.logic.pool.PuzzlePool;
+
+/**
+ * Metrics collects the latency of the requests by handler and the work of the
+ * generator: counters are striped LongAdders and durations are Histograms, so
+ * the hot paths never contend on a lock. The counters of the puzzle pool, if
+ * any, are read from the pool when the metrics are written. The metrics are
+ * written in the text format of Prometheus, durations in seconds with the
+ * buckets of BOUNDS
+ */
+public class Metrics {
+
+	// upper bounds in seconds of the exported buckets
+	private static final String[] BOUNDS = { "0.0001", "0.00025", "0.0005", "0.001", "0.0025", "0.005", "0.01",
+			"0.025", "0.05", "0.1", "0.25", "0.5", "1", "2.5", "5", "10" };
+
+	private final ConcurrentHashMap<String, Histogram> requests = new ConcurrentHashMap<String, Histogram>();
+	private final LongAdder placements = new LongAdder();
+	private final LongAdder backtracks = new LongAdder();
+	private final LongAdder restarts = new LongAdder();
+	private final Histogram fills = new Histogram();
+	private final Histogram digs = new Histogram();
+	private volatile PuzzlePool pool;
+
+	/**
+	 * gets the latency histogram of a handler, created on first use
+	 * 
+	 * @param String
+	 *            handler the name of the handler
+	 * @return Histogram the histogram of the handler in nanoseconds
+	 */
+	public Histogram request(final String handler) {
+		Histogram histogram = requests.get(handler);
+		if (histogram == null) {
+			histogram = new Histogram();
+			Histogram existing = requests.putIfAbsent(handler, histogram);
+			if (existing != null) {
+				histogram = existing;
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * counts the work of a search filling a board, called once at its end
+	 * 
+	 * @param long
+	 *            placed the values placed
+	 * @param long
+	 *            deadEnds the dead ends backtracked from
+	 */
+	public void countSearch(final long placed, final long deadEnds) {
+		placements.add(placed);
+		backtracks.add(deadEnds);
+	}
+
+	/**
+	 * counts a search started again from scratch
+	 */
+	public void countRestart() {
+		restarts.increment();
+	}
+
+	/**
+	 * gets the histogram of the durations of the fills of complete boards in
+	 * nanoseconds
+	 */
+	public Histogram getFills() {
+		return fills;
+	}
+
+	/**
+	 * gets the histogram of the durations of the digs of puzzles in
+	 * nanoseconds
+	 */
+	public Histogram getDigs() {
+		return digs;
+	}
+
+	/**
+	 * sets the puzzle pool whose counters and bucket sizes are written with
+	 * the other metrics, see PuzzlePool.setMetrics
+	 */
+	public void setPool(final PuzzlePool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * writes all the metrics in the text format of Prometheus
+	 * 
+	 * @param Writer
+	 *            writer the writer receiving the metrics, not closed
+	 */
+	public void writeTo(final Writer writer) throws IOException {
+
+		writer.write("# HELP sudoku_http_request_duration_seconds Latency of the requests by handler.\n");
+		writer.write("# TYPE sudoku_http_request_duration_seconds histogram\n");
+		for (Map.Entry<String, Histogram> entry : new TreeMap<String, Histogram>(requests).entrySet()) {
+			this.writeHistogram(writer, "sudoku_http_request_duration_seconds",
+					"handler=\"" + entry.getKey() + "\"", entry.getValue());
+		}
+
+		this.writeCounter(writer, "sudoku_generator_placements_total", "Values placed by the board fills.",
+				placements.sum());
+		this.writeCounter(writer, "sudoku_generator_backtracks_total", "Dead ends backtracked from by the board fills.",
+				backtracks.sum());
+		this.writeCounter(writer, "sudoku_generator_restarts_total", "Board fills started again from scratch.",
+				restarts.sum());
+
+		writer.write("# HELP sudoku_generator_fill_duration_seconds Duration of the fills of complete boards.\n");
+		writer.write("# TYPE sudoku_generator_fill_duration_seconds histogram\n");
+		this.writeHistogram(writer, "sudoku_generator_fill_duration_seconds", null, fills);
+		writer.write("# HELP sudoku_generator_dig_duration_seconds Duration of the digs of puzzles.\n");
+		writer.write("# TYPE sudoku_generator_dig_duration_seconds histogram\n");
+		this.writeHistogram(writer, "sudoku_generator_dig_duration_seconds", null, digs);
+
+		PuzzlePool pool = this.pool;
+		if (pool != null) {
+			this.writePool(writer, pool);
+		}
+
+		writer.flush();
+	}
+
+	private void writePool(final Writer writer, final PuzzlePool pool) throws IOException {
+		this.writeCounter(writer, "sudoku_pool_hits_total", "Games served from the pool.", pool.getHits());
+		this.writeCounter(writer, "sudoku_pool_misses_total", "Games generated by the caller, the pool being empty.",
+				pool.getMisses());
+		this.writeCounter(writer, "sudoku_pool_discarded_total",
+				"Games generated by the pool workers and thrown away, their bucket being full.", pool.getDiscarded());
+
+		writer.write("# HELP sudoku_pool_games Games ready in the pool by difficulty.\n");
+		writer.write("# TYPE sudoku_pool_games gauge\n");
+		for (Difficulty difficulty : Difficulty.values()) {
+			writer.write("sudoku_pool_games{difficulty=\"" + difficulty.name().toLowerCase(Locale.ROOT) + "\"} "
+					+ pool.size(difficulty) + "\n");
+		}
+	}
+
+	private void writeCounter(final Writer writer, final String name, final String help, final long value)
+			throws IOException {
+		writer.write("# HELP " + name + " " + help + "\n");
+		writer.write("# TYPE " + name + " counter\n");
+		writer.write(name + " " + value + "\n");
+	}
+
+	/**
+	 * writes the cumulative buckets, the sum and the count of a histogram. A
+	 * fine bucket is counted under a bound if all its values are, so the
+	 * counts under a bound are exact to 1/16 of the bound
+	 */
+	private void writeHistogram(final Writer writer, final String name, final String labels,
+			final Histogram histogram) throws IOException {
+
+		String prefix = labels != null ? labels + "," : "";
+		long[] snapshot = histogram.snapshot();
+
+		long cumulative = 0;
+		int index = 0;
+		for (String bound : BOUNDS) {
+			long nanos = Math.round(Double.parseDouble(bound) * 1e9);
+			while (index < snapshot.length && Histogram.highestValue(index) <= nanos) {
+				cumulative += snapshot[index++];
+			}
+			writer.write(name + "_bucket{" + prefix + "le=\"" + bound + "\"} " + cumulative + "\n");
+		}
+		while (index < snapshot.length) {
+			cumulative += snapshot[index++];
+		}
+		writer.write(name + "_bucket{" + prefix + "le=\"+Inf\"} " + cumulative + "\n");
+
+		String suffix = labels != null ? "{" + labels + "}" : "";
+		writer.write(name + "_sum" + suffix + " " + histogram.getSum() / 1e9 + "\n");
+		writer.write(name + "_count" + suffix + " " + cumulative + "\n");
+	}
+
+}
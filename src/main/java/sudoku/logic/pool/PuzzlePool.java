@@ -0,0 +1,284 @@
+package sudoku.logic.pool;
+
+import java.util.EnumMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import sudoku.logic.Game;
+import sudoku.logic.SudokuManager;
+import sudoku.logic.grading.Difficulty;
+import sudoku.logic.metrics.Metrics;
+
+/**
+ * PuzzlePool keeps pre-generated games ready to be served, one bucket for
+ * every difficulty. Background workers refill a bucket as soon as it goes
+ * under the low watermark and stop when it reaches the high watermark; every
+ * generated game is graded once and goes to the bucket of its difficulty, so
+ * the easy games found while looking for a hard one are not wasted.
+ *
+ * Buckets are lock-free: taking a game never waits for the workers. When the
+ * bucket of a difficulty is empty the game is taken from the closest easier
+ * bucket, and generated synchronously by the caller only if all of them are
+ * empty, so a request never waits for a rare hard puzzle to be found.
+ */
+public class PuzzlePool {
+
+	private final SudokuManager manager;
+	// built once in the constructor and only read afterwards
+	private final EnumMap<Difficulty, Bucket> buckets = new EnumMap<Difficulty, Bucket>(Difficulty.class);
+	// released every time a bucket needs to be refilled
+	private final Semaphore refillSignal = new Semaphore(0);
+
+	// givens of the games generated to fill the bucket of every difficulty, in
+	// the order of Difficulty
+	private int[] givens = { 33, 24, 24, 24 };
+	private int lowWatermark = 16;
+	private int highWatermark = 64;
+	private int workers = 1;
+
+	private volatile boolean running;
+	private Thread[] threads;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong generated = new AtomicLong();
+	private final AtomicLong discarded = new AtomicLong();
+
+	public PuzzlePool(final SudokuManager manager) {
+		this.manager = manager;
+		for (Difficulty difficulty : Difficulty.values()) {
+			buckets.put(difficulty, new Bucket(difficulty));
+		}
+	}
+
+	/**
+	 * starts the background workers filling the buckets
+	 */
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		if (lowWatermark < 0 || highWatermark < lowWatermark)
+			throw new IllegalArgumentException("watermarks must satisfy 0 <= low <= high");
+		if (givens.length != Difficulty.values().length)
+			throw new IllegalArgumentException("givens must be set for each difficulty");
+
+		running = true;
+		threads = new Thread[workers];
+		for (int i = 0; i < workers; i++) {
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					refill();
+				}
+			}, "puzzle-pool-" + i);
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+	}
+
+	/**
+	 * stops the background workers, games already in the pool are kept
+	 */
+	public synchronized void stop() {
+		if (!running) {
+			return;
+		}
+
+		running = false;
+		for (Thread thread : threads) {
+			thread.interrupt();
+		}
+		threads = null;
+	}
+
+	/**
+	 * takes a game of a difficulty from the pool. If its bucket is empty the
+	 * game comes from the closest easier bucket, or it is generated
+	 * synchronously if all of them are empty: in both cases the game may not
+	 * have the requested difficulty, see Game.getDifficulty
+	 *
+	 * @param Difficulty
+	 *            difficulty the difficulty of the game
+	 *
+	 * @return Game a game never served before
+	 */
+	public Game take(final Difficulty difficulty) {
+		Bucket bucket = buckets.get(difficulty);
+		Game game = bucket.poll();
+
+		if (game != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+			for (int d = difficulty.ordinal() - 1; d >= 0 && game == null; d--) {
+				game = this.pollAndSignal(buckets.get(Difficulty.values()[d]));
+			}
+			if (game == null) {
+				game = manager.makeGame(givens[difficulty.ordinal()]);
+			}
+		}
+
+		this.signal(bucket);
+		return game;
+	}
+
+	private Game pollAndSignal(final Bucket bucket) {
+		Game game = bucket.poll();
+		this.signal(bucket);
+		return game;
+	}
+
+	/**
+	 * wakes up a worker if a bucket went under the low watermark
+	 */
+	private void signal(final Bucket bucket) {
+		if (bucket.size() < lowWatermark && !bucket.refilling) {
+			bucket.refilling = true;
+			refillSignal.release();
+		}
+	}
+
+	/**
+	 * worker loop: fills the buckets to be refilled until the pool is stopped
+	 */
+	private void refill() {
+		while (running) {
+			Bucket bucket = this.nextBucketToFill();
+
+			if (bucket == null) {
+				try {
+					refillSignal.tryAcquire(1, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					return;
+				}
+				continue;
+			}
+
+			Game game = manager.makeGame(givens[bucket.difficulty.ordinal()]);
+			Bucket target = buckets.get(game.getDifficulty());
+			if (target.offer(game, highWatermark)) {
+				generated.incrementAndGet();
+			} else {
+				discarded.incrementAndGet();
+			}
+			if (target.size() >= highWatermark) {
+				target.refilling = false;
+			}
+		}
+	}
+
+	/**
+	 * gets the emptiest of the buckets being refilled
+	 */
+	private Bucket nextBucketToFill() {
+		Bucket next = null;
+		for (Bucket bucket : buckets.values()) {
+			if (bucket.refilling && (next == null || bucket.size() < next.size())) {
+				next = bucket;
+			}
+		}
+		return next;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getGenerated() {
+		return generated.get();
+	}
+
+	/**
+	 * gets the number of games generated by the workers and thrown away because
+	 * the bucket of their difficulty was already full
+	 */
+	public long getDiscarded() {
+		return discarded.get();
+	}
+
+	/**
+	 * gets the ratio of the games served from the pool over all the games
+	 * served
+	 */
+	public double getHitRate() {
+		long h = hits.get(), total = h + misses.get();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	/**
+	 * gets the number of games ready in the bucket of a difficulty
+	 */
+	public int size(final Difficulty difficulty) {
+		return buckets.get(difficulty).size();
+	}
+
+	public void setGivens(int[] givens) {
+		this.givens = givens;
+	}
+
+	public void setLowWatermark(int lowWatermark) {
+		this.lowWatermark = lowWatermark;
+	}
+
+	public void setHighWatermark(int highWatermark) {
+		this.highWatermark = highWatermark;
+	}
+
+	public void setWorkers(int workers) {
+		this.workers = workers;
+	}
+
+	/**
+	 * exports the hits, misses, discarded games and bucket sizes of the pool
+	 * with the metrics
+	 */
+	public void setMetrics(Metrics metrics) {
+		metrics.setPool(this);
+	}
+
+	/**
+	 * bounded lock-free queue of the games with the same difficulty
+	 */
+	private static final class Bucket {
+
+		private final Difficulty difficulty;
+		private final ConcurrentLinkedQueue<Game> games = new ConcurrentLinkedQueue<Game>();
+		private final AtomicInteger size = new AtomicInteger();
+		// a new bucket is filled straight away
+		private volatile boolean refilling = true;
+
+		Bucket(final Difficulty difficulty) {
+			this.difficulty = difficulty;
+		}
+
+		boolean offer(final Game game, final int capacity) {
+			if (size.incrementAndGet() > capacity) {
+				size.decrementAndGet();
+				return false;
+			}
+			games.offer(game);
+			return true;
+		}
+
+		Game poll() {
+			Game game = games.poll();
+			if (game != null) {
+				size.decrementAndGet();
+			}
+			return game;
+		}
+
+		int size() {
+			return size.get();
+		}
+	}
+
+}
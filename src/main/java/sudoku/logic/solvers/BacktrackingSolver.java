@@ -0,0 +1,218 @@
+package sudoku.logic.solvers;
+
+import java.util.SplittableRandom;
+
+import sudoku.logic.ConstraintMasks;
+import sudoku.logic.Sudoku;
+import sudoku.logic.metrics.Metrics;
+
+/**
+ * BacktrackingSolver resolves a puzzle filling the cells from (0,0) in reading
+ * order with random valid values. Instead of recursing once per step it keeps
+ * the filled cells in an explicit trail used to undo the last placement on a
+ * dead end, so the stack depth is constant and no object is allocated while
+ * solving.
+ *
+ * Any board size works, but filling in reading order only stays practical on
+ * boards up to 9x9: see MostConstrainedSolver for the larger ones
+ */
+public class BacktrackingSolver implements SudokuSolver {
+
+	// receives the work of every solve, none if null
+	private Metrics metrics;
+
+	@Override
+	public boolean solve(final Sudoku sudoku) {
+		return this.solve(sudoku, new SplittableRandom());
+	}
+
+	/**
+	 * resolve a puzzle choosing the values with a random generator, the same
+	 * puzzle and generator state always give the same solution
+	 * 
+	 * @param Sudoku
+	 *            sudoku the sudoku puzzle to solve
+	 * 
+	 * @param SplittableRandom
+	 *            random the generator of the random choices
+	 * 
+	 * @return boolean true if the puzzle has been solved, false if it has no
+	 *         solution
+	 */
+	public boolean solve(final Sudoku sudoku, final SplittableRandom random) {
+
+		final int size = sudoku.getSize();
+		final int cellsCount = size * size;
+		ConstraintMasks constraints = sudoku.getConstraints();
+
+		// indexes of the cells filled by the solver, in filling order
+		int[] trail = new int[cellsCount];
+		int depth = 0;
+		int index = 0;
+		long placed = 0, deadEnds = 0;
+
+		while (index < cellsCount) {
+			int row = index / size, column = index % size;
+
+			if (sudoku.getValue(row, column) != 0) {
+				++index;
+				continue;
+			}
+
+			int candidates = constraints.candidates(row, column) & ~sudoku.getTriedMask(row, column);
+
+			if (candidates != 0) {
+				sudoku.setValue(row, column, getRandomValue(candidates, random));
+				trail[depth++] = index;
+				++index;
+				++placed;
+			} else {
+				sudoku.reset(row, column);
+				++deadEnds;
+
+				if (depth == 0) {
+					this.count(placed, deadEnds);
+					return false;
+				}
+
+				index = trail[--depth];
+				sudoku.clear(index / size, index % size);
+			}
+		}
+
+		this.count(placed, deadEnds);
+		return true;
+	}
+
+	/**
+	 * counts the solutions on a primitive copy of the grid, always branching on
+	 * the empty cell with fewest candidates
+	 */
+	@Override
+	public int countSolutions(final Sudoku sudoku, final int limit) {
+
+		ConstraintMasks constraints = sudoku.getConstraints();
+		int size = sudoku.getSize();
+		int[] grid = new int[size * size];
+		int[] rows = new int[size];
+		int[] columns = new int[size];
+		int[] blocks = new int[size];
+
+		for (int index = 0; index < grid.length; index++) {
+			int row = index / size, column = index % size;
+			int value = sudoku.getValue(row, column);
+
+			if (value == 0) {
+				continue;
+			}
+			if (!constraints.isValid(value)) {
+				return 0;
+			}
+
+			int bit = ConstraintMasks.bit(value);
+			int block = constraints.blockOf(row, column);
+			if (((rows[row] | columns[column] | blocks[block]) & bit) != 0) {
+				return 0;
+			}
+
+			grid[index] = value;
+			rows[row] |= bit;
+			columns[column] |= bit;
+			blocks[block] |= bit;
+		}
+
+		return this.count(constraints, grid, rows, columns, blocks, limit);
+	}
+
+	private int count(final ConstraintMasks board, final int[] grid, final int[] rows, final int[] columns,
+			final int[] blocks, final int limit) {
+
+		int size = board.getSize();
+		int best = -1;
+		int bestCandidates = 0;
+		int bestSize = size + 1;
+
+		for (int index = 0; index < grid.length && bestSize > 1; index++) {
+			if (grid[index] != 0) {
+				continue;
+			}
+
+			int row = index / size, column = index % size;
+			int candidates = board.getAllValues() & ~(rows[row] | columns[column] | blocks[board.blockOf(row, column)]);
+			int count = Integer.bitCount(candidates);
+
+			if (count == 0) {
+				return 0;
+			}
+			if (count < bestSize) {
+				best = index;
+				bestCandidates = candidates;
+				bestSize = count;
+			}
+		}
+
+		if (best == -1) {
+			return 1;
+		}
+
+		int row = best / size, column = best % size;
+		int block = board.blockOf(row, column);
+		int found = 0;
+
+		while (bestCandidates != 0 && found < limit) {
+			int bit = bestCandidates & -bestCandidates;
+			bestCandidates ^= bit;
+
+			grid[best] = Integer.numberOfTrailingZeros(bit) + 1;
+			rows[row] |= bit;
+			columns[column] |= bit;
+			blocks[block] |= bit;
+
+			found += this.count(board, grid, rows, columns, blocks, limit - found);
+
+			grid[best] = 0;
+			rows[row] &= ~bit;
+			columns[column] &= ~bit;
+			blocks[block] &= ~bit;
+		}
+
+		return found;
+	}
+
+	private void count(final long placed, final long deadEnds) {
+		if (metrics != null) {
+			metrics.countSearch(placed, deadEnds);
+		}
+	}
+
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * picks a random value from a mask of candidates
+	 * 
+	 * @param int
+	 *            candidates the not empty mask of candidates
+	 * 
+	 * @param SplittableRandom
+	 *            random the generator of the random choice
+	 * 
+	 * @return int the picked value
+	 */
+	public static int getRandomValue(final int candidates, final SplittableRandom random) {
+		int size = Integer.bitCount(candidates);
+		int randomIndex = 0;
+
+		if (size != 1) {
+			randomIndex = random.nextInt(size);
+		}
+
+		return ConstraintMasks.valueAt(candidates, randomIndex);
+	}
+
+}
@@ -0,0 +1,238 @@
+package sudoku.logic.solvers;
+
+import sudoku.logic.ConstraintMasks;
+import sudoku.logic.Sudoku;
+
+/**
+ * DancingLinksSolver resolves a puzzle as an exact cover problem with Knuth's
+ * Algorithm X on dancing links, always branching on the most constrained
+ * column.
+ *
+ * The 324 columns are the constraints of the grid (every cell filled, every
+ * value once per row, column and block) and the 729 rows are the candidates
+ * (a value in a cell). The links are kept in primitive arrays: the full matrix
+ * is built once and copied into a per-thread workspace for every puzzle, so
+ * solving allocates nothing.
+ */
+public class DancingLinksSolver implements SudokuSolver {
+
+	private static final int SIZE = Sudoku.PUZZLE_SIZE;
+	private static final int CELLS = SIZE * SIZE;
+	private static final int COLUMNS = CELLS * 4;
+	private static final int CANDIDATES = CELLS * SIZE;
+	// node 0 is the root, 1..COLUMNS the column headers, then 4 nodes per
+	// candidate
+	private static final int FIRST_NODE = COLUMNS + 1;
+	private static final int NODES = FIRST_NODE + CANDIDATES * 4;
+
+	private static final int[] LEFT = new int[NODES];
+	private static final int[] RIGHT = new int[NODES];
+	private static final int[] UP = new int[NODES];
+	private static final int[] DOWN = new int[NODES];
+	private static final int[] SIZES = new int[COLUMNS + 1];
+	private static final int[] COLUMN = new int[NODES];
+	private static final int[] CANDIDATE = new int[NODES];
+
+	static {
+		for (int c = 0; c <= COLUMNS; c++) {
+			LEFT[c] = c == 0 ? COLUMNS : c - 1;
+			RIGHT[c] = c == COLUMNS ? 0 : c + 1;
+			UP[c] = c;
+			DOWN[c] = c;
+			COLUMN[c] = c;
+		}
+
+		for (int candidate = 0; candidate < CANDIDATES; candidate++) {
+			int cell = candidate / SIZE;
+			int row = cell / SIZE;
+			int column = cell % SIZE;
+			int value = candidate % SIZE;
+			int block = ConstraintMasks.block(row, column);
+
+			int[] columns = { 1 + cell, 1 + CELLS + row * SIZE + value, 1 + 2 * CELLS + column * SIZE + value,
+					1 + 3 * CELLS + block * SIZE + value };
+			int first = FIRST_NODE + candidate * 4;
+
+			for (int k = 0; k < 4; k++) {
+				int node = first + k;
+				int header = columns[k];
+
+				LEFT[node] = k == 0 ? first + 3 : node - 1;
+				RIGHT[node] = k == 3 ? first : node + 1;
+
+				UP[node] = UP[header];
+				DOWN[node] = header;
+				DOWN[UP[header]] = node;
+				UP[header] = node;
+
+				COLUMN[node] = header;
+				CANDIDATE[node] = candidate;
+				SIZES[header]++;
+			}
+		}
+	}
+
+	private static final ThreadLocal<Workspace> WORKSPACES = new ThreadLocal<Workspace>() {
+		@Override
+		protected Workspace initialValue() {
+			return new Workspace();
+		}
+	};
+
+	@Override
+	public boolean solve(final Sudoku sudoku) {
+		Workspace workspace = WORKSPACES.get();
+
+		if (workspace.search(sudoku, 1) == 0) {
+			return false;
+		}
+
+		for (int index = 0; index < CELLS; index++) {
+			int row = index / SIZE, column = index % SIZE;
+			if (sudoku.getValue(row, column) == 0) {
+				sudoku.reset(row, column);
+				sudoku.setValue(row, column, workspace.solution[index]);
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int countSolutions(final Sudoku sudoku, final int limit) {
+		return WORKSPACES.get().search(sudoku, limit);
+	}
+
+	/**
+	 * mutable copy of the links used to solve one puzzle at time
+	 */
+	private static final class Workspace {
+
+		private final int[] left = new int[NODES];
+		private final int[] right = new int[NODES];
+		private final int[] up = new int[NODES];
+		private final int[] down = new int[NODES];
+		private final int[] sizes = new int[COLUMNS + 1];
+
+		// candidates chosen at every depth of the search
+		private final int[] chosen = new int[CELLS];
+		// first solution found
+		private final int[] solution = new int[CELLS];
+		private final int[] grid = new int[CELLS];
+
+		private int solutions;
+		private int limit;
+
+		/**
+		 * counts the solutions of a puzzle up to a limit, keeping the first
+		 * one found
+		 *
+		 * @param Sudoku
+		 *            sudoku the puzzle to solve
+		 * @param int
+		 *            limit the number of solutions after which the search
+		 *            stops
+		 * @return int the number of solutions found
+		 */
+		int search(final Sudoku sudoku, final int limit) {
+			System.arraycopy(LEFT, 0, left, 0, NODES);
+			System.arraycopy(RIGHT, 0, right, 0, NODES);
+			System.arraycopy(UP, 0, up, 0, NODES);
+			System.arraycopy(DOWN, 0, down, 0, NODES);
+			System.arraycopy(SIZES, 0, sizes, 0, COLUMNS + 1);
+
+			this.solutions = 0;
+			this.limit = limit;
+
+			for (int index = 0; index < CELLS; index++) {
+				int value = sudoku.getValue(index / SIZE, index % SIZE);
+				grid[index] = value;
+
+				if (value == 0) {
+					continue;
+				}
+				if (!ConstraintMasks.isValidValue(value)) {
+					return 0;
+				}
+
+				int first = FIRST_NODE + (index * SIZE + value - 1) * 4;
+				// a given clashing with a previous one hits an already
+				// covered column
+				for (int node = first; node < first + 4; node++) {
+					int header = COLUMN[node];
+					if (right[left[header]] != header) {
+						return 0;
+					}
+					cover(header);
+				}
+			}
+
+			search(0);
+			return solutions;
+		}
+
+		private void search(final int depth) {
+			if (right[0] == 0) {
+				if (solutions++ == 0) {
+					System.arraycopy(grid, 0, solution, 0, CELLS);
+					for (int k = 0; k < depth; k++) {
+						solution[chosen[k] / SIZE] = chosen[k] % SIZE + 1;
+					}
+				}
+				return;
+			}
+
+			int column = right[0];
+			for (int c = right[column]; c != 0 && sizes[column] > 1; c = right[c]) {
+				if (sizes[c] < sizes[column]) {
+					column = c;
+				}
+			}
+
+			if (sizes[column] == 0) {
+				return;
+			}
+
+			cover(column);
+			for (int row = down[column]; row != column && solutions < limit; row = down[row]) {
+				chosen[depth] = CANDIDATE[row];
+				for (int node = right[row]; node != row; node = right[node]) {
+					cover(COLUMN[node]);
+				}
+
+				search(depth + 1);
+
+				for (int node = left[row]; node != row; node = left[node]) {
+					uncover(COLUMN[node]);
+				}
+			}
+			uncover(column);
+		}
+
+		private void cover(final int column) {
+			right[left[column]] = right[column];
+			left[right[column]] = left[column];
+
+			for (int row = down[column]; row != column; row = down[row]) {
+				for (int node = right[row]; node != row; node = right[node]) {
+					up[down[node]] = up[node];
+					down[up[node]] = down[node];
+					sizes[COLUMN[node]]--;
+				}
+			}
+		}
+
+		private void uncover(final int column) {
+			for (int row = up[column]; row != column; row = up[row]) {
+				for (int node = left[row]; node != row; node = left[node]) {
+					sizes[COLUMN[node]]++;
+					up[down[node]] = node;
+					down[up[node]] = node;
+				}
+			}
+
+			right[left[column]] = column;
+			left[right[column]] = column;
+		}
+	}
+
+}
@@ -0,0 +1,356 @@
+package sudoku.logic.solvers;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import sudoku.logic.ConstraintMasks;
+import sudoku.logic.Sudoku;
+import sudoku.logic.metrics.Metrics;
+
+/**
+ * MostConstrainedSolver resolves boards of any size, from 4x4 to 25x25,
+ * always branching on the empty cell with the fewest candidates, or on a
+ * value that fits only one cell of a unit (hidden single) when no cell has a
+ * single candidate. The search runs on a primitive copy of the board: values
+ * in an int array, candidates computed from the occupancy masks of rows,
+ * columns and blocks, and the empty cells kept in a list where the chosen cell
+ * is swapped at the end, so a step costs a scan of the empty cells and no
+ * allocation.
+ *
+ * Random fills of an empty board may sometimes wander in a dead subtree, so
+ * they are restarted from scratch after a budget of steps
+ */
+public class MostConstrainedSolver implements SudokuSolver {
+
+	// steps of a random fill before starting it again
+	private static final int RESTART_STEPS = 2000;
+	// random fills tried before searching without budget
+	private static final int RESTARTS = 20;
+
+	// receives the work of every random fill, none if null
+	private Metrics metrics;
+
+	@Override
+	public boolean solve(final Sudoku sudoku) {
+		Search search = Search.of(sudoku, null);
+		return search != null && search.run(1, Integer.MAX_VALUE) == 1 && search.copyTo(sudoku);
+	}
+
+	/**
+	 * resolve a puzzle trying the candidates of every cell in random order,
+	 * the same puzzle and generator state always give the same solution
+	 *
+	 * @param Sudoku
+	 *            sudoku the sudoku puzzle to solve
+	 *
+	 * @param SplittableRandom
+	 *            random the generator of the random choices
+	 *
+	 * @return boolean true if the puzzle has been solved, false if it has no
+	 *         solution
+	 */
+	public boolean solve(final Sudoku sudoku, final SplittableRandom random) {
+		Search search = Search.of(sudoku, random);
+		if (search == null) {
+			return false;
+		}
+
+		try {
+			for (int attempt = 0; attempt < RESTARTS; attempt++) {
+				int found = search.run(1, RESTART_STEPS);
+				if (found >= 0) {
+					return found == 1 && search.copyTo(sudoku);
+				}
+				if (metrics != null) {
+					metrics.countRestart();
+				}
+			}
+			return search.run(1, Integer.MAX_VALUE) == 1 && search.copyTo(sudoku);
+		} finally {
+			if (metrics != null) {
+				metrics.countSearch(search.placed, search.deadEnds);
+			}
+		}
+	}
+
+	@Override
+	public int countSolutions(final Sudoku sudoku, final int limit) {
+		return this.countSolutions(sudoku, limit, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * counts the solutions of a puzzle giving up after a number of steps:
+	 * the count on a board with few givens can take very long on 25x25
+	 * boards
+	 * 
+	 * @param Sudoku
+	 *            sudoku the sudoku puzzle to check
+	 * 
+	 * @param int
+	 *            limit the number of solutions after which the count stops
+	 * 
+	 * @param int
+	 *            budget the number of steps after which the count is
+	 *            abandoned
+	 * 
+	 * @return int the number of solutions found, never greater than limit,
+	 *         or -1 if the count has been abandoned
+	 */
+	public int countSolutions(final Sudoku sudoku, final int limit, final int budget) {
+		Search search = Search.of(sudoku, null);
+		return search == null ? 0 : search.run(limit, budget);
+	}
+
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * state of a search on a primitive copy of a board
+	 */
+	private static final class Search {
+
+		private final int size;
+		private final int allValues;
+		private final int[] grid;
+		// row, column and block of every cell
+		private final int[] cellRows;
+		private final int[] cellColumns;
+		private final int[] cellBlocks;
+		private final int[] rows;
+		private final int[] columns;
+		private final int[] blocks;
+		// candidates seen at least once and twice in every unit at a step:
+		// rows, then columns, then blocks
+		private final int[] once;
+		private final int[] twice;
+		// the empty cells, the first emptyCount are still to fill
+		private final int[] empty;
+		private final SplittableRandom random;
+		private int initialEmpty;
+		private int emptyCount;
+		private int found;
+		private int steps;
+		private int budget;
+		// work of all the runs
+		private long placed;
+		private long deadEnds;
+		// first solution found
+		private int[] solution;
+
+		private Search(final ConstraintMasks board, final SplittableRandom random) {
+			size = board.getSize();
+			allValues = board.getAllValues();
+			grid = new int[size * size];
+			cellRows = new int[grid.length];
+			cellColumns = new int[grid.length];
+			cellBlocks = new int[grid.length];
+			rows = new int[size];
+			columns = new int[size];
+			blocks = new int[size];
+			once = new int[3 * size];
+			twice = new int[3 * size];
+			empty = new int[grid.length];
+			this.random = random;
+
+			for (int index = 0; index < grid.length; index++) {
+				cellRows[index] = index / size;
+				cellColumns[index] = index % size;
+				cellBlocks[index] = board.blockOf(index / size, index % size);
+			}
+		}
+
+		/**
+		 * copies a board
+		 *
+		 * @return Search the search or null if the board breaks some
+		 *         constraint
+		 */
+		static Search of(final Sudoku sudoku, final SplittableRandom random) {
+			ConstraintMasks constraints = sudoku.getConstraints();
+			Search search = new Search(constraints, random);
+			int size = search.size;
+
+			int count = 0;
+			for (int index = 0; index < search.grid.length; index++) {
+				int value = sudoku.getValue(index / size, index % size);
+				if (value == 0) {
+					search.empty[count++] = index;
+					continue;
+				}
+				if (!constraints.isValid(value)) {
+					return null;
+				}
+
+				int bit = ConstraintMasks.bit(value);
+				if (((search.rows[search.cellRows[index]] | search.columns[search.cellColumns[index]]
+						| search.blocks[search.cellBlocks[index]]) & bit) != 0) {
+					return null;
+				}
+				search.place(index, value, bit);
+			}
+
+			search.initialEmpty = count;
+			return search;
+		}
+
+		/**
+		 * searches the solutions from the initial board
+		 *
+		 * @param int
+		 *            limit the number of solutions after which the search
+		 *            stops
+		 * @param int
+		 *            budget the number of steps after which the search is
+		 *            abandoned
+		 * @return int the number of solutions found, -1 if the search has
+		 *         been abandoned
+		 */
+		int run(final int limit, final int budget) {
+			emptyCount = initialEmpty;
+			found = 0;
+			steps = 0;
+			this.budget = budget;
+			this.search(limit);
+			return steps > budget ? -1 : found;
+		}
+
+		private void search(final int limit) {
+			if (emptyCount == 0) {
+				if (found++ == 0) {
+					solution = grid.clone();
+				}
+				return;
+			}
+			if (++steps > budget) {
+				return;
+			}
+
+			Arrays.fill(once, 0);
+			Arrays.fill(twice, 0);
+
+			int best = -1;
+			int bestCandidates = 0;
+			int bestCount = size + 1;
+			for (int k = 0; k < emptyCount && bestCount > 1; k++) {
+				int index = empty[k];
+				int row = cellRows[index], column = size + cellColumns[index], block = 2 * size + cellBlocks[index];
+				int candidates = allValues & ~(rows[row] | columns[column - size] | blocks[block - 2 * size]);
+				int count = Integer.bitCount(candidates);
+				if (count == 0) {
+					++deadEnds;
+					return;
+				}
+				if (count < bestCount) {
+					best = k;
+					bestCandidates = candidates;
+					bestCount = count;
+				}
+
+				twice[row] |= once[row] & candidates;
+				once[row] |= candidates;
+				twice[column] |= once[column] & candidates;
+				once[column] |= candidates;
+				twice[block] |= once[block] & candidates;
+				once[block] |= candidates;
+			}
+
+			if (bestCount > 1) {
+				// all the empty cells have been scanned: look for a value
+				// missing from a unit that fits nowhere or in one cell only
+				for (int unit = 0; unit < 3 * size; unit++) {
+					int missing = allValues & ~this.usedIn(unit);
+					if ((missing & ~once[unit]) != 0) {
+						++deadEnds;
+						return;
+					}
+					int singles = missing & ~twice[unit];
+					if (singles != 0) {
+						bestCandidates = singles & -singles;
+						best = this.findIn(unit, bestCandidates);
+						break;
+					}
+				}
+			}
+
+			// the chosen cell leaves the empty list, swapped at its end
+			int index = empty[best];
+			empty[best] = empty[--emptyCount];
+			empty[emptyCount] = index;
+
+			while (bestCandidates != 0 && found < limit && steps <= budget) {
+				int bit = random != null
+						? ConstraintMasks.bit(BacktrackingSolver.getRandomValue(bestCandidates, random))
+						: bestCandidates & -bestCandidates;
+				bestCandidates ^= bit;
+
+				this.place(index, Integer.numberOfTrailingZeros(bit) + 1, bit);
+				++placed;
+				this.search(limit);
+				this.remove(index, bit);
+			}
+
+			empty[emptyCount] = empty[best];
+			empty[best] = index;
+			++emptyCount;
+		}
+
+		/**
+		 * gets the values used in a unit
+		 */
+		private int usedIn(final int unit) {
+			return unit < size ? rows[unit] : unit < 2 * size ? columns[unit - size] : blocks[unit - 2 * size];
+		}
+
+		/**
+		 * gets the position in the empty list of the only cell of a unit
+		 * accepting a value
+		 */
+		private int findIn(final int unit, final int bit) {
+			for (int k = 0;; k++) {
+				int index = empty[k];
+				boolean inUnit = unit < size ? cellRows[index] == unit
+						: unit < 2 * size ? cellColumns[index] == unit - size : cellBlocks[index] == unit - 2 * size;
+				if (inUnit && (allValues & ~(rows[cellRows[index]] | columns[cellColumns[index]]
+						| blocks[cellBlocks[index]]) & bit) != 0) {
+					return k;
+				}
+			}
+		}
+
+		private void place(final int index, final int value, final int bit) {
+			grid[index] = value;
+			rows[cellRows[index]] |= bit;
+			columns[cellColumns[index]] |= bit;
+			blocks[cellBlocks[index]] |= bit;
+		}
+
+		private void remove(final int index, final int bit) {
+			grid[index] = 0;
+			rows[cellRows[index]] &= ~bit;
+			columns[cellColumns[index]] &= ~bit;
+			blocks[cellBlocks[index]] &= ~bit;
+		}
+
+		/**
+		 * fills the empty cells of a board with the first solution found
+		 *
+		 * @return boolean always true
+		 */
+		boolean copyTo(final Sudoku sudoku) {
+			for (int index = 0; index < solution.length; index++) {
+				int row = index / size, column = index % size;
+				if (sudoku.getValue(row, column) == 0) {
+					sudoku.reset(row, column);
+					sudoku.setValue(row, column, solution[index]);
+				}
+			}
+			return true;
+		}
+	}
+
+}
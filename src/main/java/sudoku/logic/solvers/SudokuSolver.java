@@ -0,0 +1,37 @@
+package sudoku.logic.solvers;
+
+import sudoku.logic.Sudoku;
+
+/**
+ * SudokuSolver is a strategy to resolve a Sudoku puzzle. The backend used by
+ * SudokuManager can be chosen by configuration
+ */
+public interface SudokuSolver {
+
+	/**
+	 * resolve a puzzle filling all its empty cells
+	 * 
+	 * @param Sudoku
+	 *            sudoku the sudoku puzzle to solve
+	 * 
+	 * @return boolean true if the puzzle has been solved, false if it has no
+	 *         solution
+	 */
+	boolean solve(Sudoku sudoku);
+
+	/**
+	 * counts the solutions of a puzzle without modifying it, stopping as soon
+	 * as a limit is reached. A limit of 2 is enough to check whether a puzzle
+	 * has a unique solution
+	 * 
+	 * @param Sudoku
+	 *            sudoku the sudoku puzzle to check
+	 * 
+	 * @param int
+	 *            limit the number of solutions after which the count stops
+	 * 
+	 * @return int the number of solutions found, never greater than limit
+	 */
+	int countSolutions(Sudoku sudoku, int limit);
+
+}
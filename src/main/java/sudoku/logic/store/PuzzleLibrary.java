@@ -0,0 +1,57 @@
+package sudoku.logic.store;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import sudoku.logic.grading.Difficulty;
+
+/**
+ * PuzzleLibrary holds the puzzle stores configured for the application, at
+ * most one per difficulty, and draws games from them at random
+ */
+public class PuzzleLibrary {
+
+	// built once in open and only read afterwards
+	private final EnumMap<Difficulty, PuzzleStore> stores = new EnumMap<Difficulty, PuzzleStore>(Difficulty.class);
+
+	private String[] locations = {};
+
+	/**
+	 * maps the store files, every store must hold the games of a single
+	 * difficulty
+	 */
+	public void open() throws IOException {
+		for (String location : locations) {
+			PuzzleStore store = PuzzleStore.open(Paths.get(location));
+			if (store.getDifficulty() == null)
+				throw new IllegalArgumentException(location + " must hold games of a single difficulty");
+			if (stores.containsKey(store.getDifficulty()))
+				throw new IllegalArgumentException("more than one store for " + store.getDifficulty());
+
+			stores.put(store.getDifficulty(), store);
+		}
+	}
+
+	/**
+	 * gets the store of a difficulty, null if none holds games of that
+	 * difficulty
+	 */
+	public PuzzleStore get(final Difficulty difficulty) {
+		PuzzleStore store = stores.get(difficulty);
+		return store != null && store.size() > 0 ? store : null;
+	}
+
+	/**
+	 * draws the index of a random game of a store
+	 */
+	public int randomIndex(final PuzzleStore store) {
+		return ThreadLocalRandom.current().nextInt(store.size());
+	}
+
+	public void setLocations(String[] locations) {
+		this.locations = locations;
+	}
+
+}
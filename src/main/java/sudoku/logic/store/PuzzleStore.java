@@ -0,0 +1,151 @@
+package sudoku.logic.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import sudoku.logic.CompactSudoku;
+import sudoku.logic.Sudoku;
+import sudoku.logic.SudokuCodec;
+import sudoku.logic.grading.Difficulty;
+
+/**
+ * PuzzleStore serves pre-generated games from a binary file mapped in memory,
+ * so that the games stay off heap and the operating system pages them in on
+ * demand. The file is an 8 bytes header followed by fixed-width records (see
+ * SudokuCodec), so the n-th game is found in O(1) and read in place.
+ *
+ * Header: the magic number "SDKP", the ordinal of the difficulty of all the
+ * games or -1 if mixed, then 3 reserved bytes.
+ *
+ * Reads never move the position of the mapped buffer, so a store can be shared
+ * by any number of threads. The file is limited to 2GB (about 41 millions of
+ * games)
+ */
+public class PuzzleStore {
+
+	public static final int MAGIC = 0x53444b50;
+	public static final int HEADER_LENGTH = 8;
+	static final byte MIXED = -1;
+
+	private final Path path;
+	private final MappedByteBuffer buffer;
+	private final int size;
+	private final Difficulty difficulty;
+
+	private PuzzleStore(final Path path, final MappedByteBuffer buffer) {
+		if (buffer.capacity() < HEADER_LENGTH || buffer.getInt(0) != MAGIC)
+			throw new IllegalArgumentException(path + " is not a puzzle store");
+		if ((buffer.capacity() - HEADER_LENGTH) % SudokuCodec.RECORD_LENGTH != 0)
+			throw new IllegalArgumentException(path + " is truncated");
+
+		byte ordinal = buffer.get(4);
+		if (ordinal != MIXED && (ordinal < 0 || ordinal >= Difficulty.values().length))
+			throw new IllegalArgumentException(path + " has an unknown difficulty " + ordinal);
+
+		this.path = path;
+		this.buffer = buffer;
+		this.size = (buffer.capacity() - HEADER_LENGTH) / SudokuCodec.RECORD_LENGTH;
+		this.difficulty = ordinal == MIXED ? null : Difficulty.values()[ordinal];
+	}
+
+	/**
+	 * maps a store file in memory, read only
+	 *
+	 * @param Path
+	 *            path the store file
+	 *
+	 * @return PuzzleStore the store
+	 */
+	public static PuzzleStore open(final Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IllegalArgumentException(path + " is larger than 2GB");
+
+			// the mapping stays valid after the channel is closed
+			return new PuzzleStore(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * writes the header of a store
+	 *
+	 * @param ByteBuffer
+	 *            buffer the buffer receiving the header at its position
+	 * @param Difficulty
+	 *            difficulty the difficulty of all the games, null if mixed
+	 */
+	static void writeHeader(final ByteBuffer buffer, final Difficulty difficulty) {
+		buffer.putInt(MAGIC);
+		buffer.put(difficulty == null ? MIXED : (byte) difficulty.ordinal());
+		buffer.put(new byte[HEADER_LENGTH - 5]);
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * gets the number of games in the store
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * gets the difficulty of all the games or null if the store is mixed
+	 */
+	public Difficulty getDifficulty() {
+		return difficulty;
+	}
+
+	/**
+	 * gets the position of the record of the n-th game in the buffer
+	 */
+	public int offset(final int index) {
+		if (index >= size || index < 0)
+			throw new IllegalArgumentException("game index out of bound");
+
+		return HEADER_LENGTH + index * SudokuCodec.RECORD_LENGTH;
+	}
+
+	/**
+	 * gets the mapped buffer, to read the records in place with SudokuCodec
+	 */
+	public ByteBuffer getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * builds the puzzle of the n-th game
+	 */
+	public Sudoku getPuzzle(final int index) {
+		return new Sudoku(buffer, this.offset(index));
+	}
+
+	/**
+	 * gets the puzzle of the n-th game as a matrix, 0 for empty cells
+	 */
+	public int[][] getPuzzleMatrix(final int index) {
+		int offset = this.offset(index);
+		int[][] matrix = new int[Sudoku.PUZZLE_SIZE][Sudoku.PUZZLE_SIZE];
+		for (int cell = 0; cell < CompactSudoku.CELLS; cell++) {
+			if (SudokuCodec.isGivenAt(buffer, offset, cell)) {
+				matrix[cell / Sudoku.PUZZLE_SIZE][cell % Sudoku.PUZZLE_SIZE] = SudokuCodec.valueAt(buffer, offset,
+						cell);
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * gets the solution of the n-th game as a string of 81 digits
+	 */
+	public String getSolutionCode(final int index) {
+		return SudokuCodec.encode(buffer, this.offset(index));
+	}
+
+}
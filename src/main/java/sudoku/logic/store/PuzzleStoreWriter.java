@@ -0,0 +1,88 @@
+package sudoku.logic.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+import sudoku.logic.Game;
+import sudoku.logic.SudokuCodec;
+import sudoku.logic.grading.Difficulty;
+
+/**
+ * PuzzleStoreWriter appends games to a new store file, see PuzzleStore. It can
+ * be fed concurrently, e.g. by SudokuManager.makeGames: records are packed in
+ * a buffer under a lock and written in large blocks.
+ *
+ * A writer with a difficulty keeps only the games of that difficulty, so that
+ * the store can serve them by index
+ */
+public class PuzzleStoreWriter implements Consumer<Game>, Closeable {
+
+	private static final int BUFFER_RECORDS = 4096;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_RECORDS * SudokuCodec.RECORD_LENGTH);
+	private final Difficulty difficulty;
+	private long written;
+
+	/**
+	 * creates the store file, replacing it if it exists
+	 *
+	 * @param Path
+	 *            path the store file
+	 * @param Difficulty
+	 *            difficulty the difficulty of the games to keep, null to keep
+	 *            all of them
+	 */
+	public PuzzleStoreWriter(final Path path, final Difficulty difficulty) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		this.difficulty = difficulty;
+		PuzzleStore.writeHeader(buffer, difficulty);
+	}
+
+	@Override
+	public synchronized void accept(final Game game) {
+		if (difficulty != null && game.getDifficulty() != difficulty) {
+			return;
+		}
+		if (buffer.remaining() < SudokuCodec.RECORD_LENGTH) {
+			this.flush();
+		}
+		SudokuCodec.packRecord(game, buffer);
+		++written;
+	}
+
+	/**
+	 * gets the number of games kept so far
+	 */
+	public synchronized long getWritten() {
+		return written;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			this.flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void flush() {
+		buffer.flip();
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("unable to write the puzzle store", e);
+		}
+		buffer.clear();
+	}
+
+}
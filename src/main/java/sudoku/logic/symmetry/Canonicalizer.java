@@ -0,0 +1,307 @@
+package sudoku.logic.symmetry;
+
+import sudoku.logic.CompactSudoku;
+import sudoku.logic.Sudoku;
+
+/**
+ * Canonicalizer computes the canonical form of a board: the lexicographically
+ * smallest string of 81 digits (0 for empty cells, so emptier rows come
+ * first) among all the boards equivalent under the Sudoku symmetry group, i.e.
+ * transposition, permutations of bands, of rows inside a band, of stacks, of
+ * columns inside a stack and relabeling of the digits. Two boards are
+ * equivalent if and only if they have the same canonical form.
+ *
+ * The digits are relabeled in order of first appearance, which is the
+ * smallest relabeling of a fixed arrangement of the cells. For every
+ * transposition and every top row the columns are arranged cell by cell,
+ * then the other rows are chosen top to bottom keeping at every step only the
+ * rows giving the smallest relabeled row. A branch is cut as soon as its
+ * output gets greater than the best form found so far, so most of the 3.3
+ * millions arrangements are never visited.
+ *
+ * Instances keep their scratch arrays, so they are not thread-safe: use one
+ * per thread
+ */
+public class Canonicalizer {
+
+	private static final int SIZE = Sudoku.PUZZLE_SIZE;
+	private static final int BLOCK = Sudoku.BLOCK_SIZE;
+	private static final int CELLS = CompactSudoku.CELLS;
+	// no row has diverged from the best form
+	private static final int SAME = Integer.MAX_VALUE;
+
+	private final int[] grid = new int[CELLS];
+	private final int[] columns = new int[SIZE];
+	private int usedColumns;
+	private int top;
+	private final int[] best = new int[CELLS];
+	private boolean found;
+
+	// state of the row search
+	private final int[] output = new int[CELLS];
+	private final int[] rowOf = new int[SIZE];
+	private final int[][] ties = new int[SIZE][SIZE];
+	private final int[] labels = new int[SIZE + 1];
+	private int nextLabel;
+	private int usedRows;
+	// first position where the output went below the best form, SAME if the
+	// output equals the best form so far, -1 if there is no best form yet
+	private int diverged;
+	// number of times the best form has been replaced
+	private int updates;
+
+	// labels given to the digits appearing for the first time in a row
+	private final int[] candidate = new int[SIZE];
+	private final int[] newLabels = new int[SIZE + 1];
+	private final int[] newStamps = new int[SIZE + 1];
+	private int stamp;
+
+	/**
+	 * computes the canonical form of a board
+	 *
+	 * @param CompactSudoku
+	 *            sudoku the board, givens are ignored
+	 *
+	 * @return CompactSudoku the canonical form, its filled cells marked as
+	 *         given
+	 */
+	public CompactSudoku canonicalize(final CompactSudoku sudoku) {
+		int[] cells = new int[CELLS];
+		for (int index = 0; index < CELLS; index++) {
+			cells[index] = sudoku.getValue(index);
+		}
+		this.canonicalize(cells, cells);
+
+		int[][] matrix = new int[SIZE][SIZE];
+		for (int index = 0; index < CELLS; index++) {
+			matrix[index / SIZE][index % SIZE] = cells[index];
+		}
+		return new CompactSudoku(matrix, true);
+	}
+
+	/**
+	 * computes the canonical form of a board given as 81 values in reading
+	 * order
+	 *
+	 * @param int[]
+	 *            cells the values of the board, 0 for empty cells
+	 * @param int[]
+	 *            canonical the array receiving the canonical form, it can be
+	 *            cells itself
+	 */
+	public void canonicalize(final int[] cells, final int[] canonical) {
+		for (int index = 0; index < CELLS; index++) {
+			if (cells[index] < 0 || cells[index] > SIZE)
+				throw new IllegalArgumentException("invalid value " + cells[index]);
+		}
+
+		found = false;
+		for (int transposed = 0; transposed < 2; transposed++) {
+			for (int index = 0; index < CELLS; index++) {
+				int r = index / SIZE, c = index % SIZE;
+				grid[index] = transposed == 0 ? cells[index] : cells[c * SIZE + r];
+			}
+			for (top = 0; top < SIZE; top++) {
+				nextLabel = 1;
+				usedColumns = 0;
+				rowOf[0] = top;
+				usedRows = 1 << top;
+				this.chooseColumn(0, found ? SAME : -1);
+			}
+		}
+		System.arraycopy(best, 0, canonical, 0, CELLS);
+	}
+
+	/**
+	 * chooses the column at a position of the top row, the digits of the top
+	 * row being all different they are labeled in order. Once all the columns
+	 * are arranged the search goes on with the rows
+	 */
+	private void chooseColumn(final int position, int state) {
+		if (position == SIZE) {
+			diverged = state == SAME || state < 0 ? state : 0;
+			this.chooseRow(1);
+			return;
+		}
+
+		for (int c = 0; c < SIZE; c++) {
+			if (!this.isColumnAllowed(position, c)) {
+				continue;
+			}
+			int value = grid[top * SIZE + c];
+			int label = value == 0 ? 0 : nextLabel;
+
+			// compare with the best form only while the prefix is the same
+			int next = state;
+			if (state == SAME) {
+				if (label > best[position]) {
+					continue;
+				}
+				if (label < best[position]) {
+					next = position;
+				}
+			}
+
+			columns[position] = c;
+			usedColumns |= 1 << c;
+			output[position] = label;
+			if (value != 0) {
+				labels[value] = nextLabel++;
+			}
+
+			int before = updates;
+			this.chooseColumn(position + 1, next);
+			if (updates != before) {
+				// the best form now shares the prefix of the output
+				state = SAME;
+			}
+
+			usedColumns &= ~(1 << c);
+			if (value != 0) {
+				labels[value] = 0;
+				--nextLabel;
+			}
+		}
+	}
+
+	/**
+	 * tells whether a column can take a position: at the left of a stack any
+	 * column of an unused stack, otherwise the unused columns of the current
+	 * stack
+	 */
+	private boolean isColumnAllowed(final int position, final int c) {
+		if ((usedColumns & (1 << c)) != 0) {
+			return false;
+		}
+		if (position % BLOCK == 0) {
+			return (usedColumns & (7 << (c / BLOCK * BLOCK))) == 0;
+		}
+		return c / BLOCK == columns[position - 1] / BLOCK;
+	}
+
+	/**
+	 * chooses the row at a position among the rows giving the smallest
+	 * relabeled row, branching on ties
+	 */
+	private void chooseRow(final int position) {
+		if (position == SIZE) {
+			if (diverged != SAME) {
+				System.arraycopy(output, 0, best, 0, CELLS);
+				found = true;
+				++updates;
+			}
+			return;
+		}
+
+		// the smallest relabeled row goes straight to the output
+		int offset = position * SIZE;
+		int[] tied = ties[position];
+		int count = 0;
+		for (int r = 0; r < SIZE; r++) {
+			if (!this.isAllowed(position, r)) {
+				continue;
+			}
+			this.relabel(r);
+			int compare = count == 0 ? -1 : 0;
+			for (int k = 0; k < SIZE && compare == 0; k++) {
+				compare = candidate[k] - output[offset + k];
+			}
+			if (compare < 0) {
+				System.arraycopy(candidate, 0, output, offset, SIZE);
+				count = 0;
+			}
+			if (compare <= 0) {
+				tied[count++] = r;
+			}
+		}
+
+		// compare with the best form only while the prefix is the same
+		int previous = diverged;
+		if (diverged >= position) {
+			int compare = 0;
+			for (int k = 0; k < SIZE && compare == 0; k++) {
+				compare = output[offset + k] - best[offset + k];
+			}
+			if (compare > 0) {
+				return;
+			}
+			if (compare < 0) {
+				diverged = position;
+			}
+		}
+
+		int current = diverged;
+		int before = updates;
+		int labelsBefore = nextLabel;
+		for (int t = 0; t < count; t++) {
+			int r = tied[t];
+			// the digits appearing for the first time take the next labels
+			for (int k = 0; k < SIZE; k++) {
+				int value = grid[r * SIZE + columns[k]];
+				if (value != 0 && labels[value] == 0) {
+					labels[value] = nextLabel++;
+				}
+			}
+			rowOf[position] = r;
+			usedRows |= 1 << r;
+
+			int updatesBefore = updates;
+			diverged = current;
+			this.chooseRow(position + 1);
+			if (updates != updatesBefore) {
+				// the best form now shares the prefix of the output
+				current = SAME;
+			}
+
+			usedRows &= ~(1 << r);
+			for (int k = 0; k < SIZE; k++) {
+				int value = grid[r * SIZE + columns[k]];
+				if (value != 0 && labels[value] >= labelsBefore) {
+					labels[value] = 0;
+				}
+			}
+			nextLabel = labelsBefore;
+		}
+
+		diverged = updates != before ? SAME : previous;
+	}
+
+	/**
+	 * tells whether a row can take a position: at the top of a band any row of
+	 * an unused band, otherwise the unused rows of the current band
+	 */
+	private boolean isAllowed(final int position, final int r) {
+		if ((usedRows & (1 << r)) != 0) {
+			return false;
+		}
+		if (position % BLOCK == 0) {
+			return (usedRows & (7 << (r / BLOCK * BLOCK))) == 0;
+		}
+		return r / BLOCK == rowOf[position - 1] / BLOCK;
+	}
+
+	/**
+	 * relabels a row of the arranged grid in candidate with the current
+	 * labels, the digits not labeled yet taking the next labels in order of
+	 * appearance
+	 */
+	private void relabel(final int r) {
+		++stamp;
+		int extra = nextLabel;
+		for (int k = 0; k < SIZE; k++) {
+			int value = grid[r * SIZE + columns[k]];
+			if (value == 0) {
+				candidate[k] = 0;
+			} else if (labels[value] != 0) {
+				candidate[k] = labels[value];
+			} else {
+				if (newStamps[value] != stamp) {
+					newStamps[value] = stamp;
+					newLabels[value] = extra++;
+				}
+				candidate[k] = newLabels[value];
+			}
+		}
+	}
+
+}
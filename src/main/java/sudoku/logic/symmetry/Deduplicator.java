@@ -0,0 +1,63 @@
+package sudoku.logic.symmetry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import sudoku.logic.CompactSudoku;
+import sudoku.logic.Game;
+
+/**
+ * Deduplicator forwards only the games whose puzzle is not equivalent to one
+ * already seen, e.g. between SudokuManager.makeGames and a writer. Puzzles are
+ * canonicalized by the calling thread, with a canonicalizer per thread, and
+ * only the lookup in the index is serialized
+ */
+public class Deduplicator implements Consumer<Game> {
+
+	private static final ThreadLocal<Canonicalizer> CANONICALIZERS = new ThreadLocal<Canonicalizer>() {
+		@Override
+		protected Canonicalizer initialValue() {
+			return new Canonicalizer();
+		}
+	};
+
+	private static final ThreadLocal<int[]> CELLS = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[CompactSudoku.CELLS];
+		}
+	};
+
+	private final FingerprintIndex index;
+	private final Consumer<Game> consumer;
+	private final AtomicLong duplicates = new AtomicLong();
+
+	public Deduplicator(final FingerprintIndex index, final Consumer<Game> consumer) {
+		this.index = index;
+		this.consumer = consumer;
+	}
+
+	@Override
+	public void accept(final Game game) {
+		int[] cells = CELLS.get();
+		CompactSudoku puzzle = game.getPuzzle();
+		for (int i = 0; i < CompactSudoku.CELLS; i++) {
+			cells[i] = puzzle.getValue(i);
+		}
+		CANONICALIZERS.get().canonicalize(cells, cells);
+
+		if (index.add(cells)) {
+			consumer.accept(game);
+		} else {
+			duplicates.incrementAndGet();
+		}
+	}
+
+	/**
+	 * gets the number of games dropped as duplicates
+	 */
+	public long getDuplicates() {
+		return duplicates.get();
+	}
+
+}
@@ -0,0 +1,148 @@
+package sudoku.logic.symmetry;
+
+/**
+ * FingerprintIndex is a set of canonical forms kept as 128-bit fingerprints
+ * in an open addressing table of longs, so that millions of puzzles can be
+ * deduplicated in a streaming pass with 16 bytes per puzzle and no pairwise
+ * comparison. Two different forms sharing a fingerprint is possible but
+ * unlikely enough (about 2^-64 for a billion forms) to be ignored.
+ *
+ * Adding is synchronized, the index can be fed by many generation threads
+ */
+public class FingerprintIndex {
+
+	private static final double LOAD_FACTOR = 0.5;
+
+	// pairs of longs (high, low), 0-0 marks an empty slot
+	private long[] table;
+	private int size;
+
+	public FingerprintIndex() {
+		this(1 << 16);
+	}
+
+	/**
+	 * @param int
+	 *            expected the number of forms expected, to avoid resizing
+	 */
+	public FingerprintIndex(final int expected) {
+		if (expected < 0)
+			throw new IllegalArgumentException("expected size must not be negative");
+
+		int capacity = 16;
+		while (capacity * LOAD_FACTOR < expected) {
+			capacity <<= 1;
+		}
+		table = new long[2 * capacity];
+	}
+
+	/**
+	 * computes the fingerprint of a canonical form: two 64-bit hashes of the
+	 * 81 values with independent seeds
+	 *
+	 * @param int[]
+	 *            canonical the 81 values of the canonical form
+	 *
+	 * @return long[] the high and low words of the fingerprint
+	 */
+	public static long[] fingerprint(final int[] canonical) {
+		long high = 0x9E3779B97F4A7C15L, low = 0xC2B2AE3D27D4EB4FL;
+		for (int value : canonical) {
+			high = mix(high ^ value);
+			low = mix(low + value + 1);
+		}
+		return new long[] { high, low };
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * adds a canonical form to the index
+	 *
+	 * @param int[]
+	 *            canonical the 81 values of the canonical form
+	 *
+	 * @return boolean true if the form was not in the index
+	 */
+	public boolean add(final int[] canonical) {
+		long[] fingerprint = fingerprint(canonical);
+		return this.add(fingerprint[0], fingerprint[1]);
+	}
+
+	/**
+	 * adds a fingerprint to the index
+	 *
+	 * @return boolean true if the fingerprint was not in the index
+	 */
+	public synchronized boolean add(final long high, long low) {
+		if (high == 0 && low == 0) {
+			// 0-0 marks the empty slots
+			low = 1;
+		}
+		if (size + 1 > (table.length / 2) * LOAD_FACTOR) {
+			this.resize();
+		}
+		if (!insert(table, high, low)) {
+			return false;
+		}
+		++size;
+		return true;
+	}
+
+	public synchronized boolean contains(final int[] canonical) {
+		long[] fingerprint = fingerprint(canonical);
+		long high = fingerprint[0], low = fingerprint[1];
+		if (high == 0 && low == 0) {
+			low = 1;
+		}
+
+		int mask = table.length / 2 - 1;
+		for (int slot = (int) high & mask;; slot = (slot + 1) & mask) {
+			if (table[2 * slot] == high && table[2 * slot + 1] == low) {
+				return true;
+			}
+			if (table[2 * slot] == 0 && table[2 * slot + 1] == 0) {
+				return false;
+			}
+		}
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * inserts a fingerprint with linear probing
+	 *
+	 * @return boolean false if the fingerprint is already in the table
+	 */
+	private static boolean insert(final long[] table, final long high, final long low) {
+		int mask = table.length / 2 - 1;
+		for (int slot = (int) high & mask;; slot = (slot + 1) & mask) {
+			long h = table[2 * slot], l = table[2 * slot + 1];
+			if (h == 0 && l == 0) {
+				table[2 * slot] = high;
+				table[2 * slot + 1] = low;
+				return true;
+			}
+			if (h == high && l == low) {
+				return false;
+			}
+		}
+	}
+
+	private void resize() {
+		long[] old = table;
+		table = new long[2 * old.length];
+		for (int i = 0; i < old.length; i += 2) {
+			if (old[i] != 0 || old[i + 1] != 0) {
+				insert(table, old[i], old[i + 1]);
+			}
+		}
+	}
+
+}
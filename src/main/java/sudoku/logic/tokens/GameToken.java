@@ -0,0 +1,96 @@
+package sudoku.logic.tokens;
+
+import sudoku.logic.SudokuCodec;
+
+/**
+ * GameToken is the game carried by a signed token: the solution of the puzzle
+ * and the bitmap of its givens, the puzzle being the solution restricted to
+ * the givens. See GameTokens
+ */
+public class GameToken {
+
+	private final String solution;
+	private final int size;
+	// cell i at bit i % 64 of word i / 64
+	private final long[] givens;
+
+	/**
+	 * @param String
+	 *            solution the solution encoded as a string of base 36 digits,
+	 *            see SudokuCodec.encode(Sudoku)
+	 * 
+	 * @param long[]
+	 *            givens the bitmap of the given cells in reading order
+	 */
+	public GameToken(final String solution, final long[] givens) {
+		this.size = SudokuCodec.sizeOf(solution);
+		if (givens.length != (size * size + 63) / 64)
+			throw new IllegalArgumentException("givens bitmap must have " + (size * size + 63) / 64 + " words");
+
+		this.solution = solution;
+		this.givens = givens;
+	}
+
+	/**
+	 * builds the bitmap of the givens of a puzzle
+	 * 
+	 * @param int[][]
+	 *            puzzle the puzzle, 0 for empty cells
+	 * 
+	 * @return long[] the bitmap of the filled cells in reading order
+	 */
+	public static long[] givensOf(final int[][] puzzle) {
+		int size = puzzle.length;
+		long[] givens = new long[(size * size + 63) / 64];
+		for (int index = 0; index < size * size; index++) {
+			if (puzzle[index / size][index % size] != 0) {
+				givens[index >>> 6] |= 1L << index;
+			}
+		}
+		return givens;
+	}
+
+	/**
+	 * tells whether the givens of the puzzle are unchanged in a board
+	 * 
+	 * @param int[][]
+	 *            matrix the board of the player
+	 * 
+	 * @return boolean false if the board has another size or a given cell
+	 *         holds another value
+	 */
+	public boolean keepsGivens(final int[][] matrix) {
+		if (matrix.length != size) {
+			return false;
+		}
+		for (int row = 0; row < size; row++) {
+			if (matrix[row].length != size) {
+				return false;
+			}
+			for (int column = 0; column < size; column++) {
+				int index = row * size + column;
+				if (this.isGiven(index) && matrix[row][column] != Character.digit(solution.charAt(index), 36)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	public boolean isGiven(final int index) {
+		return (givens[index >>> 6] & 1L << index) != 0;
+	}
+
+	public String getSolution() {
+		return solution;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	long[] getGivens() {
+		return givens;
+	}
+
+}
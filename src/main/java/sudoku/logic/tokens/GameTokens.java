@@ -0,0 +1,292 @@
+package sudoku.logic.tokens;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import sudoku.logic.Sudoku;
+import sudoku.logic.SudokuCodec;
+
+/**
+ * GameTokens issues and verifies the tokens carrying a whole game, so that any
+ * node can check the answers of a player with no session: the page gets the
+ * token with the puzzle and sends it back with every check.
+ *
+ * A token is the url-safe base 64 of: a version byte, a random iv of 16
+ * bytes, the encrypted game and the HMAC-SHA256 of all that. The game is the
+ * block size in a byte followed by the values of the solution in reading
+ * order, in as few bits as the size needs (4 on a 9x9 board), and the bitmap
+ * of the givens: 52 bytes for a 9x9 game, 135 characters of token. The game
+ * is encrypted with AES in counter mode since the player must not read the
+ * solution in the token, and the signature is checked in constant time
+ * before decrypting anything.
+ *
+ * The keys are derived from the secret, which must be the same on all the
+ * nodes: stateless games need a secret, init fails without one. Otherwise the
+ * tokens are not handed out to pages and a random secret is drawn at init,
+ * valid only on this node until it restarts
+ */
+public class GameTokens {
+
+	private static final byte VERSION = 1;
+	private static final int IV_LENGTH = 16;
+	private static final int MAC_LENGTH = 32;
+	private static final int MIN_SECRET_LENGTH = 16;
+
+	private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+	private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+	private final SecureRandom random = new SecureRandom();
+
+	// whether the index page hands out tokens instead of keeping the game in
+	// the session
+	private boolean stateless;
+	private byte[] secret;
+
+	private SecretKeySpec macKey;
+	private SecretKeySpec cipherKey;
+
+	// Mac and Cipher are not thread-safe, one per thread
+	private final ThreadLocal<Mac> macs = new ThreadLocal<Mac>() {
+		@Override
+		protected Mac initialValue() {
+			try {
+				Mac mac = Mac.getInstance("HmacSHA256");
+				mac.init(macKey);
+				return mac;
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException("HmacSHA256 not available", e);
+			}
+		}
+	};
+
+	private final ThreadLocal<Cipher> ciphers = new ThreadLocal<Cipher>() {
+		@Override
+		protected Cipher initialValue() {
+			try {
+				return Cipher.getInstance("AES/CTR/NoPadding");
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException("AES/CTR not available", e);
+			}
+		}
+	};
+
+	/**
+	 * derives the keys from the secret, drawing a random secret if none has
+	 * been set and games are kept in the session
+	 *
+	 * @throws IllegalStateException
+	 *             if games are stateless and no secret has been set
+	 */
+	public void init() {
+		if (secret == null) {
+			// a random secret would make the tokens of a node invalid on the
+			// others and after a restart
+			if (stateless)
+				throw new IllegalStateException("stateless games need a secret shared by all the nodes");
+
+			secret = new byte[32];
+			random.nextBytes(secret);
+		}
+
+		try {
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+			macKey = new SecretKeySpec(mac.doFinal("sudoku-token-mac".getBytes(StandardCharsets.US_ASCII)),
+					"HmacSHA256");
+			byte[] cipherBytes = mac.doFinal("sudoku-token-cipher".getBytes(StandardCharsets.US_ASCII));
+			cipherKey = new SecretKeySpec(Arrays.copyOf(cipherBytes, 16), "AES");
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("HmacSHA256 not available", e);
+		}
+	}
+
+	/**
+	 * issues the token of a game
+	 *
+	 * @param String
+	 *            solution the solution encoded as a string of base 36 digits,
+	 *            see SudokuCodec.encode(Sudoku)
+	 *
+	 * @param int[][]
+	 *            puzzle the puzzle, 0 for empty cells
+	 *
+	 * @return String the token
+	 */
+	public String issue(final String solution, final int[][] puzzle) {
+		return this.issue(new GameToken(solution, GameToken.givensOf(puzzle)));
+	}
+
+	/**
+	 * issues the token of a game
+	 *
+	 * @param GameToken
+	 *            game the game
+	 *
+	 * @return String the token
+	 */
+	public String issue(final GameToken game) {
+
+		int size = game.getSize();
+		int bits = bitsOf(size);
+		byte[] token = new byte[1 + IV_LENGTH + gameLength(size) + MAC_LENGTH];
+		token[0] = VERSION;
+
+		// the game in clear, then encrypted in place
+		int offset = 1 + IV_LENGTH;
+		token[offset] = (byte) Sudoku.blockSizeOf(size);
+		int bit = (offset + 1) * 8;
+		String solution = game.getSolution();
+		for (int index = 0; index < size * size; index++) {
+			write(token, bit, bits, SudokuCodec.valueAt(solution, index / size, index % size) - 1);
+			bit += bits;
+		}
+		for (int index = 0; index < size * size; index++) {
+			write(token, bit++, 1, game.isGiven(index) ? 1 : 0);
+		}
+
+		byte[] iv = new byte[IV_LENGTH];
+		random.nextBytes(iv);
+		System.arraycopy(iv, 0, token, 1, IV_LENGTH);
+		this.crypt(Cipher.ENCRYPT_MODE, iv, token, offset, gameLength(size));
+
+		Mac mac = macs.get();
+		mac.update(token, 0, token.length - MAC_LENGTH);
+		try {
+			mac.doFinal(token, token.length - MAC_LENGTH);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+
+		return ENCODER.encodeToString(token);
+	}
+
+	/**
+	 * verifies the signature of a token and decodes its game
+	 *
+	 * @param String
+	 *            token the token issued by this node or another one sharing
+	 *            the secret
+	 *
+	 * @return GameToken the game of the token
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the token is malformed or its signature is wrong
+	 */
+	public GameToken verify(final String token) {
+
+		byte[] bytes;
+		try {
+			bytes = DECODER.decode(token);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("malformed game token", e);
+		}
+		if (bytes.length < 1 + IV_LENGTH + 1 + MAC_LENGTH || bytes[0] != VERSION)
+			throw new IllegalArgumentException("malformed game token");
+
+		Mac mac = macs.get();
+		mac.update(bytes, 0, bytes.length - MAC_LENGTH);
+		byte[] expected = mac.doFinal();
+		if (!MessageDigest.isEqual(expected, Arrays.copyOfRange(bytes, bytes.length - MAC_LENGTH, bytes.length)))
+			throw new IllegalArgumentException("invalid game token");
+
+		int offset = 1 + IV_LENGTH;
+		int length = bytes.length - MAC_LENGTH - offset;
+		this.crypt(Cipher.DECRYPT_MODE, Arrays.copyOfRange(bytes, 1, offset), bytes, offset, length);
+
+		int blockSize = bytes[offset];
+		if (blockSize < Sudoku.MIN_BLOCK_SIZE || blockSize > Sudoku.MAX_BLOCK_SIZE
+				|| length != gameLength(blockSize * blockSize))
+			throw new IllegalArgumentException("malformed game token");
+
+		int size = blockSize * blockSize;
+		int bits = bitsOf(size);
+		int bit = (offset + 1) * 8;
+		char[] solution = new char[size * size];
+		for (int index = 0; index < solution.length; index++) {
+			int value = read(bytes, bit, bits) + 1;
+			if (value > size)
+				throw new IllegalArgumentException("malformed game token");
+
+			solution[index] = Character.forDigit(value, 36);
+			bit += bits;
+		}
+		long[] givens = new long[(size * size + 63) / 64];
+		for (int index = 0; index < size * size; index++) {
+			givens[index >>> 6] |= (long) read(bytes, bit++, 1) << index;
+		}
+
+		return new GameToken(new String(solution), givens);
+	}
+
+	private void crypt(final int mode, final byte[] iv, final byte[] bytes, final int offset, final int length) {
+		Cipher cipher = ciphers.get();
+		try {
+			cipher.init(mode, cipherKey, new IvParameterSpec(iv));
+			cipher.doFinal(bytes, offset, length, bytes, offset);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * gets the bits of a value of the solution, stored minus one
+	 */
+	private static int bitsOf(final int size) {
+		return 32 - Integer.numberOfLeadingZeros(size - 1);
+	}
+
+	/**
+	 * gets the bytes of a game: block size, values and givens
+	 */
+	private static int gameLength(final int size) {
+		return 1 + (size * size * (bitsOf(size) + 1) + 7) / 8;
+	}
+
+	/**
+	 * writes the lowest bits of a value from a bit position, lowest bit
+	 * first
+	 */
+	private static void write(final byte[] bytes, final int position, final int bits, final int value) {
+		for (int k = 0; k < bits; k++) {
+			if ((value >>> k & 1) != 0) {
+				bytes[(position + k) >>> 3] |= 1 << ((position + k) & 7);
+			}
+		}
+	}
+
+	private static int read(final byte[] bytes, final int position, final int bits) {
+		int value = 0;
+		for (int k = 0; k < bits; k++) {
+			value |= (bytes[(position + k) >>> 3] >>> ((position + k) & 7) & 1) << k;
+		}
+		return value;
+	}
+
+	public boolean isStateless() {
+		return stateless;
+	}
+
+	public void setStateless(boolean stateless) {
+		this.stateless = stateless;
+	}
+
+	/**
+	 * sets the secret shared by all the nodes, at least 16 characters
+	 */
+	public void setSecret(String secret) {
+		if (secret == null || secret.length() < MIN_SECRET_LENGTH)
+			throw new IllegalArgumentException("secret must have at least " + MIN_SECRET_LENGTH + " characters");
+
+		this.secret = secret.getBytes(StandardCharsets.UTF_8);
+	}
+
+}
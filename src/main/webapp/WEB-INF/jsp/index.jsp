@@ -1,5 +1,5 @@
 <%@ page language="java" contentType="text/html; charset=ISO-8859-1"
-	pageEncoding="ISO-8859-1"%>
+	pageEncoding="ISO-8859-1" session="false"%>
 
 <%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core"%>
 <%@ taglib prefix="fmt" uri="http://java.sun.com/jsp/jstl/fmt"%>
@@ -9,13 +9,14 @@
 <head>
 <meta http-equiv="Content-Type" content="text/html; charset=ISO-8859-1">
 <title>Sudoku</title>
-<link rel="stylesheet" type="text/css" href="css/sudoku.css" />
+<link rel="stylesheet" type="text/css" href="${assets.urls['css/sudoku.css']}" />
 <script src="https://ajax.googleapis.com/ajax/libs/jquery/3.1.1/jquery.min.js"></script>
-<script src="js/scripts.js"></script>
+<script src="${assets.urls['js/scripts.js']}"></script>
 </head>
 <body>
 
-	<table id="sudokutable">
+	<c:set var="blockSize" value="${size == 4 ? 2 : size == 16 ? 4 : size == 25 ? 5 : 3}" />
+	<table id="sudokutable" data-size="${size}"<c:if test="${not empty token}"> data-token="${token}"</c:if>>
 		<caption>
 			<h1>
 				<b>SUDOKU</b>
@@ -23,13 +24,13 @@
 		</caption>
 		<tbody>
 			<c:forEach items="${matrix}" var="row" varStatus="rowStatus">
-				<tr class="row">
+				<tr class="row<c:if test="${rowStatus.count % blockSize == 0}"> block-bottom</c:if>">
 					<c:forEach items="${row}" var="cell" varStatus="columnStatus">
-						<td class="cell">
-							<input type="text" id="matrix${rowStatus.index}${columnStatus.index}"
-								name="matrix${rowStatus.index}${columnStatus.index}" maxlength="1"
+						<td class="cell<c:if test="${columnStatus.count % blockSize == 0}"> block-right</c:if>">
+							<input type="text" id="matrix${rowStatus.index}_${columnStatus.index}"
+								name="matrix${rowStatus.index}_${columnStatus.index}" maxlength="${size > 9 ? 2 : 1}"
 								<c:if test="${cell!=0}"> value="${cell}" readonly</c:if>
-								onkeyup="checkCell(this);" onkeypress="return isNumberKey(event);" />
+								onkeyup="updateCell(this); checkCell(this);" onkeypress="return isNumberKey(event);" />
 						</td>
 					</c:forEach>
 				</tr>
@@ -44,7 +45,21 @@
 			name="solvePuzzle" value="solve puzzle" />
 		<input class='ph-button ph-btn-color' type="button" id="resetter"
 			name="resetter" value="reset table" />
+		<c:if test="${empty token}">
+			<input class='ph-button ph-btn-color' type="button" id="hint"
+				name="hint" value="hint" />
+		</c:if>
 		<form action="">
+			<select id="difficulty" name="difficulty">
+				<c:forEach items="easy,medium,hard,expert" var="level">
+					<option value="${level}" <c:if test="${level==difficulty}">selected</c:if>>${level}</option>
+				</c:forEach>
+			</select>
+			<select id="size" name="size">
+				<c:forEach items="4,9,16,25" var="side">
+					<option value="${side}" <c:if test="${side==size}">selected</c:if>>${side}x${side}</option>
+				</c:forEach>
+			</select>
 			<input class='ph-button ph-btn-color' type="submit" id="newGame"
 				name="newGame" value="new game" />
 		</form>
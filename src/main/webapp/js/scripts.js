@@ -12,40 +12,211 @@ $(document).ready(function() {
 	$('#resetter').on('click', function() {
 		resetTable();
 	})
+
+	$('#hint').on('click', function() {
+		showHint();
+	});
 });
 
 
 
 
-//send AJAX request to check if the number inserted in the cell is correct or not
+//milliseconds without keystrokes before the pending cells are sent
+var CHECK_DELAY = 300;
+
+//cells moved by the player by id, sent to the board of the session at once
+var pendingMoves = {};
+var moveTimer = null;
+//request sending moves, the next ones wait for it so they reach the server in
+//order
+var movesInFlight = null;
+
+//queue the cell to keep the board of the session updated with its value, used
+//by the hints, stateless games have no board on the server. The moves are
+//coalesced in a single request once the player stops typing, like the checks
+function updateCell(input) {
+
+	if (gameToken() || input.readOnly) {
+		return;
+	}
+
+	pendingMoves[input.id] = input;
+	clearTimeout(moveTimer);
+	moveTimer = setTimeout(flushMoves, CHECK_DELAY);
+}
+
+
+
+
+//send AJAX request with the pending moves in the format of checkCells, value 0
+//clearing the cell. Keyups moving through the board (tab, arrows, shift) don't
+//change the value and send nothing. Returns a promise resolved once the board
+//of the session is up to date
+function flushMoves() {
+
+	clearTimeout(moveTimer);
+	moveTimer = null;
+
+	if (movesInFlight) {
+		return movesInFlight.then(flushMoves, flushMoves);
+	}
+
+	var requestData = '';
+	for (var id in pendingMoves) {
+		var input = pendingMoves[id];
+		var value = input.value == '' ? 0 : parseInt(input.value);
+
+		// the first digit of a two digits value may be a 0 or go past the size
+		if (input.value == sentValue(input) || !(value >= 0 && value <= boardSize())) {
+			continue;
+		}
+
+		var rowIndex = input.parentElement.parentElement.rowIndex;
+		var columnIndex = input.parentElement.cellIndex;
+		requestData += rowIndex.toString(36) + columnIndex.toString(36) + value.toString(36);
+		$(input).data('sent', input.value);
+	}
+	pendingMoves = {};
+
+	if (requestData == '') {
+		return $.when();
+	}
+
+	movesInFlight = $.ajax({
+		type : "POST",
+		url : '/sudoku/updateCells',
+		data : requestData,
+		contentType : "text/plain; charset=us-ascii",
+		error : function(e) {
+			alert('Error: ' + e.responseText);
+		}
+	}).always(function() {
+		movesInFlight = null;
+	});
+	return movesInFlight;
+}
+
+
+
+
+//get the value of a cell last sent to the server, the value of the page at
+//first
+function sentValue(input) {
+	var sent = $(input).data('sent');
+	return sent === undefined ? input.defaultValue : sent;
+}
+
+
+
+
+//send an AJAX request for the next step and shows it in the cell
+function showHint() {
+
+	// the hint is read from the board of the session, send the moves first
+	flushMoves().always(function() {
+		requestHint();
+	});
+}
+
+function requestHint() {
+
+	$.ajax({
+		type : "POST",
+		url : '/sudoku/hint',
+		contentType : "application/json; charset=utf-8",
+		dataType : "json",
+		success : function(response) {
+			if (response.kind == 'solved') {
+				display('the puzzle is already solved', 'success');
+				return;
+			}
+			var input = $('#matrix' + response.row + '_' + response.column)[0];
+			showHelpNumber(input, response.value);
+			display(response.kind.replace('_', ' '), response.kind == 'mistake' ? 'error' : 'success');
+		},
+		error : function(e) {
+			alert('Error: ' + e.responseText);
+		}
+	});
+}
+
+
+
+
+//cells waiting to be checked by id, the last value typed in a cell wins
+var pendingChecks = {};
+var checkTimer = null;
+
+//queue the cell to check whether the number inserted is correct, the
+//keystrokes are coalesced in a single request once the player stops typing
 function checkCell(input) {
 
 	var active = $('#helpme').is(':checked');
 
 	if (active) {
-		
+		var value = parseInt(input.value);
+		if (input.value == '' || !(value >= 1 && value <= boardSize())) {
+			delete pendingChecks[input.id];
+		} else {
+			pendingChecks[input.id] = input;
+		}
+
+		clearTimeout(checkTimer);
+		checkTimer = setTimeout(flushChecks, CHECK_DELAY);
+	}
+}
+
+
+
+
+//send AJAX request to check all the pending cells at once: 3 base 36 digits per
+//cell (row, column, value), the response has a bitmap of the correct cells
+function flushChecks() {
+
+	var inputs = [];
+	var values = [];
+	var requestData = '';
+
+	for (var id in pendingChecks) {
+		var input = pendingChecks[id];
 		var rowIndex = input.parentElement.parentElement.rowIndex;
 		var columnIndex = input.parentElement.cellIndex;
-		var value = input.value;
-		
-		var requestData = [ rowIndex, columnIndex, input.value ];
 
-		$.ajax({
-			type : "POST",
-			url : '/sudoku/checkCell',
-			data : JSON.stringify(requestData),
-			contentType : "application/json; charset=utf-8",
-			dataType : "text json",
-			success : function(response) {
-				if (!response.result){
-					showHelpNumber(input, response.value);
+		inputs.push(input);
+		values.push(input.value);
+		requestData += rowIndex.toString(36) + columnIndex.toString(36) + parseInt(input.value).toString(36);
+	}
+	pendingChecks = {};
+	checkTimer = null;
+
+	if (inputs.length == 0) {
+		return;
+	}
+
+	$.ajax({
+		type : "POST",
+		url : '/sudoku/checkCells',
+		headers : gameHeaders(),
+		data : requestData,
+		contentType : "text/plain; charset=us-ascii",
+		dataType : "json",
+		success : function(response) {
+			var wrong = 0;
+			for (var i = 0; i < inputs.length; i++) {
+				var correct = (parseInt(response.correct.charAt(i >> 2), 16) >> (i & 3)) & 1;
+				if (!correct) {
+					var number = parseInt(response.values.charAt(wrong++), 36);
+					// skip the cells changed in the meantime
+					if (inputs[i].value == values[i]) {
+						showHelpNumber(inputs[i], number);
+					}
 				}
-			},
-			error : function(e) {
-				alert('Error: ' + e.responseText);
 			}
-		});
-	}
+		},
+		error : function(e) {
+			alert('Error: ' + e.responseText);
+		}
+	});
 }
 
 
@@ -55,13 +226,23 @@ function checkCell(input) {
 //send an AJAX request to solve automatically the puzzle and then fills the table
 function solvePuzzle() {
 
+	// the board of the session is solved too, after the moves still pending
+	flushMoves().always(function() {
+		requestSolution();
+	});
+}
+
+function requestSolution() {
+
 	$.ajax({
 		type : "POST",
-		url : '/sudoku/solvePuzzle',
+		url : '/sudoku/solvePuzzle?format=compact',
+		headers : gameHeaders(),
 		contentType : "application/json; charset=utf-8",
 		dataType : "json",
 		success : function(response) {
-			fillTable(response.matrix);
+			// the board of the session is solved as well
+			fillTable(toMatrix(response.grid));
 		},
 		error : function(e) {
 			alert('error server side while solving puzzle: please fix it as soon as possible');
@@ -85,6 +266,7 @@ function checkCorrectAnswers() {
 		$.ajax({
 			type : "POST",
 			url : '/sudoku/checkCorrectAnswers',
+			headers : gameHeaders(),
 			data : JSON.stringify(matrix),
 			contentType : "application/json; charset=utf-8",
 			dataType : "json",
@@ -147,12 +329,12 @@ function checkNoEmptyCells() {
 //get the values in the table and creates the relative matrix
 function getMatrix() {
 
-	var matrix = new Array(9);
-
 	var rows = $('#sudokutable tbody >tr');
+	var matrix = new Array(rows.length);
+
 	var columns;
 	for (var i = 0; i < rows.length; i++) {
-		matrix[i] = new Array(9);
+		matrix[i] = new Array(rows.length);
 		columns = $(rows[i]).find('td');
 		for (var j = 0; j < columns.length; j++) {
 			var cell = $(columns[j]).find('input')[0];
@@ -187,7 +369,10 @@ function fillTable(matrix) {
 	for (var i = 0; i < rows.length; i++) {
 		columns = $(rows[i]).find('td');
 		for (var j = 0; j < columns.length; j++) {
-			$(columns[j]).find('input')[0].value = matrix[i][j];
+			var cell = $(columns[j]).find('input')[0];
+			cell.value = matrix[i][j];
+			// the board of the session holds the same values
+			$(cell).data('sent', cell.value);
 		}
 	}
 }
@@ -195,6 +380,47 @@ function fillTable(matrix) {
 
 
 
+//convert a grid of base 36 digits (81 digits on a 9x9 board) in an array of
+//arrays
+function toMatrix(grid) {
+
+	var size = Math.round(Math.sqrt(grid.length));
+	var matrix = new Array(size);
+	for (var i = 0; i < size; i++) {
+		matrix[i] = new Array(size);
+		for (var j = 0; j < size; j++) {
+			matrix[i][j] = parseInt(grid.charAt(i * size + j), 36);
+		}
+	}
+	return matrix;
+}
+
+
+
+
+//get the number of rows of the board
+function boardSize() {
+	return $('#sudokutable').data('size');
+}
+
+
+
+
+//get the signed token of a stateless game, undefined if the game is kept in
+//the session
+function gameToken() {
+	return $('#sudokutable').data('token');
+}
+
+//headers sending the token of a stateless game with the checks
+function gameHeaders() {
+	var token = gameToken();
+	return token ? { 'X-Game-Token' : token } : {};
+}
+
+
+
+
 //general function to display messages with relative style
 function display(text, className){
 	var $display = $('#display');
@@ -227,15 +453,28 @@ function resetTable() {
 			var cell = $(columns[j]).find('input')[0];
 			if (!cell.readOnly) {
 				cell.value = '';
+				$(cell).data('sent', '');
 			}
 		}
 	}
 	resetDisplay();
+
+	if (!gameToken()) {
+		// after the moves still pending, cleared by now
+		flushMoves().always(function() {
+			$.ajax({
+				type : "POST",
+				url : '/sudoku/resetBoard'
+			});
+		});
+	}
 }
 
 
-//prevent to insert illegal values in the sudoku puzzle cells
+//prevent to insert illegal values in the sudoku puzzle cells, 0 is allowed
+//as second digit on the boards larger than 9x9
 function isNumberKey(evt) {
 	var charCode = (evt.which) ? evt.which : evt.keyCode
-	return !(charCode > 31 && (charCode <= 48 || charCode > 57));
+	var lowest = boardSize() > 9 ? 48 : 49;
+	return !(charCode > 31 && (charCode < lowest || charCode > 57));
 }
\ No newline at end of file
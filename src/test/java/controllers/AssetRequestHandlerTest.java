@@ -0,0 +1,122 @@
+package controllers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import javax.servlet.ServletException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * the precompressed copy of an asset must be sent only to the clients
+ * accepting gzip, and the responses of an asset having such a copy must vary
+ * on Accept-Encoding
+ */
+public class AssetRequestHandlerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final AssetRequestHandler handler = new AssetRequestHandler();
+
+	@Before
+	public void setUp() throws Exception {
+		File root = folder.getRoot();
+		Files.write(new File(root, "scripts.js").toPath(), "plain".getBytes(StandardCharsets.US_ASCII));
+		Files.write(new File(root, "scripts.js.gz").toPath(), "gzipped".getBytes(StandardCharsets.US_ASCII));
+		Files.write(new File(root, "style.css").toPath(), "plain".getBytes(StandardCharsets.US_ASCII));
+
+		// the types of the container, not of javax.activation
+		handler.setServletContext(new MockServletContext() {
+			@Override
+			public String getMimeType(String filename) {
+				return filename.endsWith(".js") ? "application/javascript"
+						: filename.endsWith(".css") ? "text/css" : null;
+			}
+		});
+		handler.setLocations(Collections.<Resource> singletonList(new FileSystemResource(root.getPath() + "/")));
+		handler.afterPropertiesSet();
+	}
+
+	@Test
+	public void qualitiesAreParsed() {
+		assertTrue(handler.acceptsGzip(request("gzip")));
+		assertTrue(handler.acceptsGzip(request("deflate, gzip")));
+		assertTrue(handler.acceptsGzip(request("GZIP;q=0.5")));
+		assertTrue(handler.acceptsGzip(request("x-gzip")));
+		assertTrue(handler.acceptsGzip(request("*")));
+		assertTrue(handler.acceptsGzip(request("br;q=1.0, gzip ; q=0.8, *;q=0.1")));
+
+		assertFalse(handler.acceptsGzip(request(null)));
+		assertFalse(handler.acceptsGzip(request("")));
+		assertFalse(handler.acceptsGzip(request("identity")));
+		assertFalse(handler.acceptsGzip(request("gzip;q=0")));
+		assertFalse(handler.acceptsGzip(request("gzip;q=0.000")));
+		assertFalse(handler.acceptsGzip(request("*, gzip;q=0")));
+		assertFalse(handler.acceptsGzip(request("*;q=0")));
+		assertFalse(handler.acceptsGzip(request("gzip;q=x")));
+	}
+
+	@Test
+	public void gzippedCopyIsSentToGzipClients() throws Exception {
+		MockHttpServletResponse response = this.get("scripts.js", "gzip, deflate");
+		assertEquals("gzipped", response.getContentAsString());
+		assertEquals("gzip", response.getHeader("Content-Encoding"));
+		assertEquals("application/javascript", response.getContentType());
+		assertEquals("Accept-Encoding", response.getHeader("Vary"));
+	}
+
+	@Test
+	public void plainCopyVariesToo() throws Exception {
+		for (String acceptEncoding : new String[] { null, "identity", "gzip;q=0" }) {
+			MockHttpServletResponse response = this.get("scripts.js", acceptEncoding);
+			assertEquals("plain", response.getContentAsString());
+			assertNull(response.getHeader("Content-Encoding"));
+			assertEquals("Accept-Encoding", response.getHeader("Vary"));
+		}
+	}
+
+	@Test
+	public void assetsWithoutCopyDoNotVary() throws Exception {
+		MockHttpServletResponse response = this.get("style.css", "gzip");
+		assertEquals("plain", response.getContentAsString());
+		assertNull(response.getHeader("Content-Encoding"));
+		assertNull(response.getHeader("Vary"));
+	}
+
+	private MockHttpServletResponse get(final String path, final String acceptEncoding)
+			throws IOException, ServletException {
+		MockHttpServletRequest request = request(acceptEncoding);
+		request.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, path);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		handler.handleRequest(request, response);
+		assertEquals(200, response.getStatus());
+		return response;
+	}
+
+	private static MockHttpServletRequest request(final String acceptEncoding) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/js/test");
+		if (acceptEncoding != null) {
+			request.addHeader("Accept-Encoding", acceptEncoding);
+		}
+		return request;
+	}
+
+}
@@ -0,0 +1,102 @@
+package controllers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.support.XmlWebApplicationContext;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import sudoku.logic.Game;
+import sudoku.logic.SudokuManager;
+
+/**
+ * the batch check streams a result per matrix, and a body breaking off after
+ * the first results still gets a well-formed array ending with the error
+ */
+public class BatchCheckTest {
+
+	// more matrices than a chunk, so that the first results are sent
+	private static final int MANY = 1500;
+
+	private XmlWebApplicationContext context;
+	private MockMvc mvc;
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	@Before
+	public void setUp() {
+		context = new XmlWebApplicationContext();
+		context.setServletContext(new MockServletContext("file:src/main/webapp"));
+		context.setConfigLocation("/WEB-INF/dispatcher-servlet.xml");
+		context.refresh();
+		mvc = MockMvcBuilders.webAppContextSetup(context).build();
+	}
+
+	@After
+	public void tearDown() {
+		context.close();
+	}
+
+	@Test
+	public void resultsFollowTheMatrices() throws Exception {
+		int[][] solution = new SudokuManager().makeGame(Game.toId(1, 30)).getSolution().toArray();
+		int[][] wrong = solution.clone();
+		wrong[0] = solution[1];
+		String body = "[" + mapper.writeValueAsString(solution) + "," + mapper.writeValueAsString(wrong) + ",[1,2]]";
+
+		MockHttpServletResponse response = this.check(body);
+		assertEquals(200, response.getStatus());
+		JsonNode results = mapper.readTree(response.getContentAsString());
+		assertEquals(3, results.size());
+		assertTrue(results.get(0).get("result").asBoolean());
+		assertFalse(results.get(1).get("result").asBoolean());
+		assertEquals("column 0", results.get(1).get("unit").asText());
+		assertEquals("malformed matrix", results.get(2).get("error").asText());
+	}
+
+	@Test
+	public void earlyErrorIsABadRequest() throws Exception {
+		assertEquals(400, this.check("{}").getStatus());
+		assertEquals(400, this.check("[[[1,2,3]], oops").getStatus());
+	}
+
+	@Test
+	public void lateErrorClosesTheArray() throws Exception {
+		String solution = mapper.writeValueAsString(new SudokuManager().makeGame(Game.toId(2, 30)).getSolution()
+				.toArray());
+		StringBuilder body = new StringBuilder("[");
+		for (int k = 0; k < MANY; k++) {
+			body.append(solution).append(',');
+		}
+		body.append("oops]");
+
+		MockHttpServletResponse response = this.check(body.toString());
+		assertEquals(200, response.getStatus());
+		JsonNode results = mapper.readTree(response.getContentAsString());
+
+		// the results of the first chunk, then the error
+		assertEquals(1024 + 1, results.size());
+		for (int k = 0; k < 1024; k++) {
+			assertTrue(results.get(k).get("result").asBoolean());
+		}
+		assertTrue(results.get(1024).has("error"));
+		assertFalse(results.get(1024).has("result"));
+	}
+
+	private MockHttpServletResponse check(final String body) throws Exception {
+		return mvc.perform(post("/checkCorrectAnswersBatch").contentType(MediaType.APPLICATION_JSON).content(body))
+				.andReturn().getResponse();
+	}
+
+}
@@ -0,0 +1,95 @@
+package sudoku.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import sudoku.logic.solvers.MostConstrainedSolver;
+
+/**
+ * puzzles dug at fixed seeds must keep a unique solution, checked without a
+ * budget, including the bounded digging of boards other than 9x9
+ */
+public class DigTest {
+
+	private final SudokuManager manager = new SudokuManager();
+
+	// counts solutions without the step budget used while digging
+	private final MostConstrainedSolver checker = new MostConstrainedSolver();
+
+	@Test
+	public void gamesHaveUniqueSolution() {
+		for (long seed = 1; seed <= 20; seed++) {
+			for (int givens : new int[] { 22, 26, 30 }) {
+				Game game = manager.makeGame(Game.toId(seed, givens));
+				int[][] puzzle = game.getPuzzle().toArray();
+
+				assertUnique(puzzle, game.getSolution().toArray());
+				assertTrue(countGivens(puzzle) >= givens);
+			}
+		}
+	}
+
+	@Test
+	public void standardPuzzlesHaveUniqueSolution() {
+		this.assertDigsUnique(Sudoku.BLOCK_SIZE, 24, 10);
+	}
+
+	@Test
+	public void smallPuzzlesHaveUniqueSolution() {
+		this.assertDigsUnique(2, 4, 20);
+	}
+
+	@Test
+	public void largePuzzlesHaveUniqueSolution() {
+		this.assertDigsUnique(4, 110, 5);
+	}
+
+	@Test
+	public void hugePuzzlesHaveUniqueSolution() {
+		this.assertDigsUnique(5, 320, 3);
+	}
+
+	/**
+	 * digs boards of a block size through puzzle(template, givens, true,
+	 * random) and checks each of them
+	 */
+	private void assertDigsUnique(final int blockSize, final int givens, final int seeds) {
+		for (long seed = 1; seed <= seeds; seed++) {
+			SplittableRandom random = new SplittableRandom(seed);
+			Sudoku solution = manager.generateSudoku(blockSize, random);
+			int[][] puzzle = manager.puzzle(solution, givens, true, random).toArray();
+
+			assertEquals(blockSize * blockSize, puzzle.length);
+			assertUnique(puzzle, solution.toArray());
+			assertTrue(countGivens(puzzle) >= givens);
+		}
+	}
+
+	private void assertUnique(final int[][] puzzle, final int[][] solution) {
+		assertEquals(1, checker.countSolutions(new Sudoku(puzzle), 2));
+		for (int i = 0; i < puzzle.length; i++) {
+			for (int j = 0; j < puzzle.length; j++) {
+				if (puzzle[i][j] != 0) {
+					assertEquals(solution[i][j], puzzle[i][j]);
+				}
+			}
+		}
+	}
+
+	private static int countGivens(final int[][] puzzle) {
+		int count = 0;
+		for (int[] row : puzzle) {
+			for (int value : row) {
+				if (value != 0) {
+					++count;
+				}
+			}
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,455 @@
+package sudoku.logic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+/**
+ * the board of a player must follow the moves, clashing ones included, and
+ * give hints in order: mistakes, naked singles, hidden singles, then the
+ * cell with the fewest candidates
+ */
+public class PlayerBoardTest {
+
+	private final SudokuManager manager = new SudokuManager();
+
+	@Test
+	public void givensCannotBeChanged() {
+		Game game = manager.makeGame(Game.toId(1, 26));
+		int[][] puzzle = game.getPuzzle().toArray();
+		PlayerBoard board = boardOf(game);
+		int[] given = firstCell(puzzle, true);
+
+		// the page may send the value of a given again
+		board.setValue(given[0], given[1], puzzle[given[0]][given[1]]);
+		assertInvalid(board, given[0], given[1], 0);
+		assertInvalid(board, given[0], given[1], puzzle[given[0]][given[1]] % 9 + 1);
+		assertArrayEquals(puzzle, board.toArray());
+	}
+
+	@Test
+	public void invalidMovesAreRejected() {
+		PlayerBoard board = boardOf(manager.makeGame(Game.toId(1, 26)));
+		assertInvalid(board, -1, 0, 1);
+		assertInvalid(board, 0, 9, 1);
+		assertInvalid(board, 0, 0, 10);
+		assertInvalid(board, 0, 0, -1);
+	}
+
+	@Test
+	public void clashingValuesAreKept() {
+		Game game = manager.makeGame(Game.toId(2, 26));
+		int[][] puzzle = game.getPuzzle().toArray();
+		int[][] solution = game.getSolution().toArray();
+		PlayerBoard board = boardOf(game);
+
+		// two empty cells of a row get the same value
+		int[] first = firstCell(puzzle, false);
+		int row = first[0], second = first[1] + 1;
+		while (puzzle[row][second] != 0) {
+			++second;
+		}
+		int value = solution[row][second];
+		board.setValue(row, first[1], value);
+		board.setValue(row, second, value);
+
+		int[][] expected = copy(puzzle);
+		expected[row][first[1]] = value;
+		expected[row][second] = value;
+		assertArrayEquals(expected, board.toArray());
+
+		Hint hint = board.hint();
+		assertEquals(Hint.Kind.MISTAKE, hint.getKind());
+		assertEquals(row, hint.getRow());
+		assertEquals(first[1], hint.getColumn());
+		assertEquals(solution[row][first[1]], hint.getValue());
+	}
+
+	@Test
+	public void clearingAClashRestoresPeers() {
+		for (long seed = 1; seed <= 10; seed++) {
+			Game game = manager.makeGame(Game.toId(seed, 26));
+			int[][] puzzle = game.getPuzzle().toArray();
+			int[][] solution = game.getSolution().toArray();
+
+			// a value right in one cell and wrong in an empty peer of each
+			// unit: clearing the wrong ones must leave the value in the
+			// masks of the unit
+			int[] cell = firstCell(puzzle, false);
+			int row = cell[0], column = cell[1], value = solution[row][column];
+			List<int[]> peers = emptyPeers(puzzle, row, column);
+
+			PlayerBoard clashed = boardOf(game);
+			for (int[] peer : peers) {
+				clashed.setValue(peer[0], peer[1], value);
+			}
+			clashed.setValue(row, column, value);
+			for (int[] peer : peers) {
+				clashed.setValue(peer[0], peer[1], 0);
+			}
+
+			PlayerBoard plain = boardOf(game);
+			plain.setValue(row, column, value);
+
+			assertArrayEquals(plain.toArray(), clashed.toArray());
+			assertSameWalk(plain, clashed);
+		}
+	}
+
+	@Test
+	public void mistakesComeFirst() {
+		Game game = manager.makeGame(Game.toId(3, 26));
+		int[][] puzzle = game.getPuzzle().toArray();
+		int[][] solution = game.getSolution().toArray();
+		PlayerBoard board = boardOf(game);
+
+		// a wrong value late in the board, then a right one before it
+		int[] last = lastEmpty(puzzle);
+		board.setValue(last[0], last[1], solution[last[0]][last[1]] % 9 + 1);
+		int[] first = firstCell(puzzle, false);
+		board.setValue(first[0], first[1], solution[first[0]][first[1]]);
+
+		Hint hint = board.hint();
+		assertEquals(Hint.Kind.MISTAKE, hint.getKind());
+		assertEquals(last[0], hint.getRow());
+		assertEquals(last[1], hint.getColumn());
+		assertEquals(solution[last[0]][last[1]], hint.getValue());
+
+		board.setValue(last[0], last[1], 0);
+		assertFalse(board.hint().getKind() == Hint.Kind.MISTAKE);
+	}
+
+	@Test
+	public void nakedSingleBeforeHiddenSingle() {
+		for (long seed = 1; seed <= 20; seed++) {
+			Game game = manager.makeGame(Game.toId(seed, 26));
+			int[][] puzzle = game.getPuzzle().toArray();
+			PlayerBoard board = boardOf(game);
+
+			Hint hint = board.hint();
+			int[][] candidates = candidates(puzzle, 3);
+			if (hasNakedSingle(puzzle, candidates)) {
+				assertEquals(Hint.Kind.NAKED_SINGLE, hint.getKind());
+				assertEquals(1, Integer.bitCount(candidates[hint.getRow()][hint.getColumn()]));
+			} else if (hasHiddenSingle(puzzle, candidates, 3)) {
+				assertEquals(Hint.Kind.HIDDEN_SINGLE, hint.getKind());
+			} else {
+				assertEquals(Hint.Kind.REVEAL, hint.getKind());
+			}
+			assertEquals(game.getSolution().toArray()[hint.getRow()][hint.getColumn()], hint.getValue());
+		}
+	}
+
+	@Test
+	public void lastCellIsANakedSingle() {
+		Game game = manager.makeGame(Game.toId(4, 26));
+		int[][] solution = game.getSolution().toArray();
+		int[][] puzzle = copy(solution);
+		puzzle[4][5] = 0;
+		PlayerBoard board = new PlayerBoard(SudokuCodec.encode(game.getSolution()), puzzle);
+
+		Hint hint = board.hint();
+		assertEquals(Hint.Kind.NAKED_SINGLE, hint.getKind());
+		assertEquals(4, hint.getRow());
+		assertEquals(5, hint.getColumn());
+		assertEquals(solution[4][5], hint.getValue());
+	}
+
+	@Test
+	public void hiddenSingleWithoutNakedSingle() {
+		int found = 0;
+		for (long seed = 1; seed <= 200 && found < 3; seed++) {
+			Game game = manager.makeGame(Game.toId(seed, 22));
+			int[][] puzzle = game.getPuzzle().toArray();
+			int[][] candidates = candidates(puzzle, 3);
+			if (hasNakedSingle(puzzle, candidates) || !hasHiddenSingle(puzzle, candidates, 3)) {
+				continue;
+			}
+			++found;
+
+			Hint hint = boardOf(game).hint();
+			assertEquals(Hint.Kind.HIDDEN_SINGLE, hint.getKind());
+			assertEquals(game.getSolution().toArray()[hint.getRow()][hint.getColumn()], hint.getValue());
+			assertTrue(isHiddenSingle(puzzle, candidates, 3, hint.getRow(), hint.getColumn(), hint.getValue()));
+		}
+		assertEquals(3, found);
+	}
+
+	@Test
+	public void emptyBoardIsRevealed() {
+		Sudoku solution = manager.generateSudoku(2, new SplittableRandom(5));
+		PlayerBoard board = new PlayerBoard(SudokuCodec.encode(solution), new int[4][4]);
+
+		Hint hint = board.hint();
+		assertEquals(Hint.Kind.REVEAL, hint.getKind());
+		assertEquals(solution.toArray()[hint.getRow()][hint.getColumn()], hint.getValue());
+	}
+
+	@Test
+	public void hintsSolveTheBoard() {
+		for (int blockSize = Sudoku.MIN_BLOCK_SIZE; blockSize <= 4; blockSize++) {
+			int size = blockSize * blockSize;
+			SplittableRandom random = new SplittableRandom(blockSize);
+			Sudoku solution = manager.generateSudoku(blockSize, random);
+			int[][] puzzle = manager.puzzle(solution, size * size / 2, false, random).toArray();
+			PlayerBoard board = new PlayerBoard(SudokuCodec.encode(solution), puzzle);
+
+			int steps = 0;
+			for (Hint hint = board.hint(); hint != null; hint = board.hint()) {
+				assertFalse(hint.getKind() == Hint.Kind.MISTAKE);
+				assertEquals(0, board.toArray()[hint.getRow()][hint.getColumn()]);
+				board.setValue(hint.getRow(), hint.getColumn(), hint.getValue());
+				++steps;
+			}
+			assertEquals(size * size - countFilled(puzzle), steps);
+			assertTrue(board.isSolved());
+			assertArrayEquals(solution.toArray(), board.toArray());
+		}
+	}
+
+	@Test
+	public void resetKeepsTheGivens() {
+		Game game = manager.makeGame(Game.toId(6, 26));
+		int[][] puzzle = game.getPuzzle().toArray();
+		int[][] solution = game.getSolution().toArray();
+		PlayerBoard board = boardOf(game);
+		Hint first = board.hint();
+
+		int[] cell = firstCell(puzzle, false);
+		board.setValue(cell[0], cell[1], solution[cell[0]][cell[1]] % 9 + 1);
+		int[] last = lastEmpty(puzzle);
+		board.setValue(last[0], last[1], solution[last[0]][last[1]]);
+
+		board.reset();
+		assertArrayEquals(puzzle, board.toArray());
+		assertFalse(board.isSolved());
+		assertHint(first, board.hint());
+	}
+
+	@Test
+	public void solveFillsAndFixesTheBoard() {
+		Game game = manager.makeGame(Game.toId(7, 26));
+		int[][] puzzle = game.getPuzzle().toArray();
+		int[][] solution = game.getSolution().toArray();
+		PlayerBoard board = boardOf(game);
+
+		int[] cell = firstCell(puzzle, false);
+		board.setValue(cell[0], cell[1], solution[cell[0]][cell[1]] % 9 + 1);
+		assertFalse(board.isSolved());
+
+		board.solve();
+		assertArrayEquals(solution, board.toArray());
+		assertTrue(board.isSolved());
+		assertNull(board.hint());
+
+		board.reset();
+		assertArrayEquals(puzzle, board.toArray());
+		assertNotNull(board.hint());
+	}
+
+	@Test
+	public void wrongFullBoardIsNotSolved() {
+		Game game = manager.makeGame(Game.toId(8, 26));
+		int[][] puzzle = game.getPuzzle().toArray();
+		int[][] solution = game.getSolution().toArray();
+		PlayerBoard board = boardOf(game);
+		board.solve();
+
+		int[] cell = lastEmpty(puzzle);
+		board.setValue(cell[0], cell[1], solution[cell[0]][cell[1]] % 9 + 1);
+		assertFalse(board.isSolved());
+		assertEquals(Hint.Kind.MISTAKE, board.hint().getKind());
+
+		board.setValue(cell[0], cell[1], solution[cell[0]][cell[1]]);
+		assertTrue(board.isSolved());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void solutionMustHaveThePuzzleSize() {
+		new PlayerBoard(SudokuCodec.encode(manager.makeGame(Game.toId(1, 26)).getSolution()), new int[4][4]);
+	}
+
+	private static PlayerBoard boardOf(final Game game) {
+		return new PlayerBoard(SudokuCodec.encode(game.getSolution()), game.getPuzzle().toArray());
+	}
+
+	/**
+	 * follows the hints on both boards, which must give the same ones
+	 */
+	private static void assertSameWalk(final PlayerBoard expected, final PlayerBoard actual) {
+		for (Hint hint = expected.hint(); hint != null; hint = expected.hint()) {
+			assertHint(hint, actual.hint());
+			expected.setValue(hint.getRow(), hint.getColumn(), hint.getValue());
+			actual.setValue(hint.getRow(), hint.getColumn(), hint.getValue());
+		}
+		assertNull(actual.hint());
+	}
+
+	private static void assertHint(final Hint expected, final Hint actual) {
+		assertEquals(expected.toString(), actual.toString());
+		assertEquals(expected.getKind(), actual.getKind());
+		assertEquals(expected.getRow(), actual.getRow());
+		assertEquals(expected.getColumn(), actual.getColumn());
+		assertEquals(expected.getValue(), actual.getValue());
+	}
+
+	private static void assertInvalid(final PlayerBoard board, final int row, final int column, final int value) {
+		try {
+			board.setValue(row, column, value);
+			fail("accepted " + value + " at " + row + "," + column);
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * gets the candidates of every empty cell as a mask, bit v - 1 for the
+	 * value v
+	 */
+	private static int[][] candidates(final int[][] puzzle, final int blockSize) {
+		int size = puzzle.length;
+		int[][] candidates = new int[size][size];
+		for (int row = 0; row < size; row++) {
+			for (int column = 0; column < size; column++) {
+				if (puzzle[row][column] != 0) {
+					continue;
+				}
+				int used = 0;
+				for (int k = 0; k < size; k++) {
+					int r = row / blockSize * blockSize + k / blockSize;
+					int c = column / blockSize * blockSize + k % blockSize;
+					used |= bit(puzzle[row][k]) | bit(puzzle[k][column]) | bit(puzzle[r][c]);
+				}
+				candidates[row][column] = ~used & ((1 << size) - 1);
+			}
+		}
+		return candidates;
+	}
+
+	private static boolean hasNakedSingle(final int[][] puzzle, final int[][] candidates) {
+		for (int row = 0; row < puzzle.length; row++) {
+			for (int column = 0; column < puzzle.length; column++) {
+				if (puzzle[row][column] == 0 && Integer.bitCount(candidates[row][column]) == 1) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean hasHiddenSingle(final int[][] puzzle, final int[][] candidates, final int blockSize) {
+		for (int row = 0; row < puzzle.length; row++) {
+			for (int column = 0; column < puzzle.length; column++) {
+				for (int value = 1; value <= puzzle.length; value++) {
+					if (isHiddenSingle(puzzle, candidates, blockSize, row, column, value)) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * tells whether a value fits a cell and no other empty cell of one of
+	 * its units
+	 */
+	private static boolean isHiddenSingle(final int[][] puzzle, final int[][] candidates, final int blockSize,
+			final int row, final int column, final int value) {
+		if (puzzle[row][column] != 0 || (candidates[row][column] & bit(value)) == 0) {
+			return false;
+		}
+		int inRow = 0, inColumn = 0, inBlock = 0;
+		for (int k = 0; k < puzzle.length; k++) {
+			int r = row / blockSize * blockSize + k / blockSize;
+			int c = column / blockSize * blockSize + k % blockSize;
+			inRow += puzzle[row][k] == 0 && (candidates[row][k] & bit(value)) != 0 ? 1 : 0;
+			inColumn += puzzle[k][column] == 0 && (candidates[k][column] & bit(value)) != 0 ? 1 : 0;
+			inBlock += puzzle[r][c] == 0 && (candidates[r][c] & bit(value)) != 0 ? 1 : 0;
+		}
+		return inRow == 1 || inColumn == 1 || inBlock == 1;
+	}
+
+	private static int bit(final int value) {
+		return value == 0 ? 0 : 1 << (value - 1);
+	}
+
+	/**
+	 * gets the peers of a cell which are empty in the puzzle: the first one
+	 * of its row, of its column and of its block
+	 */
+	private static List<int[]> emptyPeers(final int[][] puzzle, final int row, final int column) {
+		List<int[]> peers = new ArrayList<int[]>();
+		for (int k = 0; k < 9; k++) {
+			if (k != column && puzzle[row][k] == 0) {
+				peers.add(new int[] { row, k });
+				break;
+			}
+		}
+		for (int k = 0; k < 9; k++) {
+			if (k != row && puzzle[k][column] == 0) {
+				peers.add(new int[] { k, column });
+				break;
+			}
+		}
+		for (int k = 0; k < 9; k++) {
+			int r = row / 3 * 3 + k / 3, c = column / 3 * 3 + k % 3;
+			if (r != row && c != column && puzzle[r][c] == 0) {
+				peers.add(new int[] { r, c });
+				break;
+			}
+		}
+		return peers;
+	}
+
+	private static int[] firstCell(final int[][] puzzle, final boolean given) {
+		for (int index = 0; index < puzzle.length * puzzle.length; index++) {
+			int row = index / puzzle.length, column = index % puzzle.length;
+			if ((puzzle[row][column] != 0) == given) {
+				return new int[] { row, column };
+			}
+		}
+		throw new IllegalStateException("no such cell");
+	}
+
+	private static int[] lastEmpty(final int[][] puzzle) {
+		for (int index = puzzle.length * puzzle.length - 1; index >= 0; index--) {
+			int row = index / puzzle.length, column = index % puzzle.length;
+			if (puzzle[row][column] == 0) {
+				return new int[] { row, column };
+			}
+		}
+		throw new IllegalStateException("no empty cell");
+	}
+
+	private static int countFilled(final int[][] puzzle) {
+		int count = 0;
+		for (int[] row : puzzle) {
+			for (int value : row) {
+				if (value != 0) {
+					++count;
+				}
+			}
+		}
+		return count;
+	}
+
+	private static int[][] copy(final int[][] matrix) {
+		int[][] copy = new int[matrix.length][];
+		for (int i = 0; i < matrix.length; i++) {
+			copy[i] = matrix[i].clone();
+		}
+		return copy;
+	}
+
+}
@@ -0,0 +1,60 @@
+package sudoku.logic.metrics;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import sudoku.logic.SudokuManager;
+import sudoku.logic.grading.Difficulty;
+import sudoku.logic.pool.PuzzlePool;
+
+/**
+ * the metrics must include the counters and the bucket sizes of the puzzle
+ * pool once it is set
+ */
+public class MetricsTest {
+
+	@Test
+	public void poolIsWrittenOnceSet() throws IOException {
+		Metrics metrics = new Metrics();
+		assertFalse(write(metrics).contains("sudoku_pool_"));
+
+		// the pool is not started, every game is a miss
+		PuzzlePool pool = new PuzzlePool(new SudokuManager());
+		pool.setMetrics(metrics);
+		pool.take(Difficulty.EASY);
+		pool.take(Difficulty.HARD);
+
+		String text = write(metrics);
+		assertTrue(text.contains("# TYPE sudoku_pool_hits_total counter\nsudoku_pool_hits_total 0\n"));
+		assertTrue(text.contains("# TYPE sudoku_pool_misses_total counter\nsudoku_pool_misses_total 2\n"));
+		assertTrue(text.contains("# TYPE sudoku_pool_discarded_total counter\nsudoku_pool_discarded_total 0\n"));
+		assertTrue(text.contains("# TYPE sudoku_pool_games gauge\n"));
+		for (Difficulty difficulty : Difficulty.values()) {
+			assertTrue(text.contains("sudoku_pool_games{difficulty=\"" + difficulty.name().toLowerCase() + "\"} 0\n"));
+		}
+	}
+
+	@Test
+	public void countersAreWritten() throws IOException {
+		Metrics metrics = new Metrics();
+		metrics.countSearch(10, 3);
+		metrics.countRestart();
+
+		String text = write(metrics);
+		assertTrue(text.contains("sudoku_generator_placements_total 10\n"));
+		assertTrue(text.contains("sudoku_generator_backtracks_total 3\n"));
+		assertTrue(text.contains("sudoku_generator_restarts_total 1\n"));
+	}
+
+	private static String write(final Metrics metrics) throws IOException {
+		StringWriter writer = new StringWriter();
+		metrics.writeTo(writer);
+		return writer.toString();
+	}
+
+}
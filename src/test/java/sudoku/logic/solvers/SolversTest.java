@@ -0,0 +1,185 @@
+package sudoku.logic.solvers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import sudoku.logic.Game;
+import sudoku.logic.Sudoku;
+import sudoku.logic.SudokuManager;
+
+/**
+ * the solver backends must agree on solve and countSolutions over a fixed
+ * corpus: known puzzles, generated ones, an unsolvable grid and grids with
+ * more than one solution
+ */
+public class SolversTest {
+
+	// puzzles with a unique solution, 0 for empty cells
+	private static final String[] UNIQUE = {
+			"530070000600195000098000060800060003400803001700020006060000280000419005000080079",
+			"800000000003600000070090200050007000000045700000100030001000068008500010090000400",
+			"000000010400000000020000000000050407008000300001090000300400200050100000000806000" };
+
+	// a row missing only a 9 that its last column already holds: no value
+	// clashes but no solution either
+	private static final String UNSOLVABLE =
+			"123456780000000000000000000000000009000000000000000000000000000000000000000000000";
+
+	private final SudokuManager manager = new SudokuManager();
+
+	private final SudokuSolver[] solvers = { new BacktrackingSolver(), new DancingLinksSolver(),
+			new MostConstrainedSolver() };
+
+	@Test
+	public void knownPuzzlesHaveTheSameSolution() {
+		for (String puzzle : UNIQUE) {
+			this.assertUnique(parse(puzzle));
+		}
+	}
+
+	@Test
+	public void generatedPuzzlesHaveTheSameSolution() {
+		for (long seed = 1; seed <= 20; seed++) {
+			Game game = manager.makeGame(Game.toId(seed, 26));
+			int[][] puzzle = game.getPuzzle().toArray();
+			this.assertUnique(puzzle);
+			assertArrayEquals(game.getSolution().toArray(), this.solve(new BacktrackingSolver(), puzzle));
+		}
+	}
+
+	@Test
+	public void unsolvableGridHasNoSolution() {
+		int[][] puzzle = parse(UNSOLVABLE);
+		for (SudokuSolver solver : solvers) {
+			String name = solver.getClass().getSimpleName();
+			assertEquals(name, 0, solver.countSolutions(new Sudoku(puzzle), 2));
+			assertFalse(name, solver.solve(new Sudoku(puzzle)));
+		}
+	}
+
+	@Test
+	public void emptyGridHasManySolutions() {
+		this.assertMultiple(new int[Sudoku.PUZZLE_SIZE][Sudoku.PUZZLE_SIZE]);
+	}
+
+	@Test
+	public void deadlyRectangleHasTwoSolutions() {
+		List<int[][]> puzzles = new ArrayList<int[][]>();
+		for (long seed = 1; puzzles.size() < 5 && seed < 200; seed++) {
+			int[][] grid = manager.generateSudoku(new SplittableRandom(seed)).toArray();
+			if (clearRectangle(grid)) {
+				puzzles.add(grid);
+			}
+		}
+		assertEquals(5, puzzles.size());
+
+		for (int[][] puzzle : puzzles) {
+			this.assertMultiple(puzzle);
+			for (SudokuSolver solver : solvers) {
+				assertEquals(solver.getClass().getSimpleName(), 2, solver.countSolutions(new Sudoku(puzzle), 10));
+			}
+		}
+	}
+
+	@Test
+	public void smallBoardsAgree() {
+		SudokuSolver[] sized = { new BacktrackingSolver(), new MostConstrainedSolver() };
+		for (long seed = 1; seed <= 20; seed++) {
+			Sudoku solution = manager.generateSudoku(2, new SplittableRandom(seed));
+			int[][] puzzle = manager.puzzle(solution, 4, true, new SplittableRandom(seed)).toArray();
+
+			for (SudokuSolver solver : sized) {
+				String name = solver.getClass().getSimpleName();
+				assertEquals(name, 1, solver.countSolutions(new Sudoku(puzzle), 2));
+				assertArrayEquals(name, solution.toArray(), this.solve(solver, puzzle));
+			}
+		}
+	}
+
+	/**
+	 * all the backends count one solution and find the same valid one,
+	 * keeping the givens
+	 */
+	private void assertUnique(final int[][] puzzle) {
+		int[][] expected = null;
+		for (SudokuSolver solver : solvers) {
+			String name = solver.getClass().getSimpleName();
+			assertEquals(name, 1, solver.countSolutions(new Sudoku(puzzle), 2));
+
+			int[][] solution = this.solve(solver, puzzle);
+			assertSolves(name, puzzle, solution);
+			if (expected == null) {
+				expected = solution;
+			}
+			assertArrayEquals(name, expected, solution);
+		}
+	}
+
+	/**
+	 * all the backends count at least two solutions and find a valid one
+	 */
+	private void assertMultiple(final int[][] puzzle) {
+		for (SudokuSolver solver : solvers) {
+			String name = solver.getClass().getSimpleName();
+			assertEquals(name, 2, solver.countSolutions(new Sudoku(puzzle), 2));
+			assertSolves(name, puzzle, this.solve(solver, puzzle));
+		}
+	}
+
+	private int[][] solve(final SudokuSolver solver, final int[][] puzzle) {
+		Sudoku sudoku = new Sudoku(puzzle);
+		assertTrue(solver.getClass().getSimpleName(), solver.solve(sudoku));
+		return sudoku.toArray();
+	}
+
+	private void assertSolves(final String name, final int[][] puzzle, final int[][] solution) {
+		assertEquals(name, SudokuManager.VALID_ANSWERS, manager.findViolatedUnit(solution));
+		for (int i = 0; i < puzzle.length; i++) {
+			for (int j = 0; j < puzzle.length; j++) {
+				if (puzzle[i][j] != 0) {
+					assertEquals(name, puzzle[i][j], solution[i][j]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * empties four cells of a filled grid holding a, b on a row and b, a on
+	 * another row of the same band, in two stacks: the two values can be
+	 * swapped, so the grid has exactly two solutions
+	 */
+	private static boolean clearRectangle(final int[][] grid) {
+		int size = grid.length, block = Sudoku.BLOCK_SIZE;
+		for (int r1 = 0; r1 < size; r1++) {
+			for (int r2 = r1 + 1; r2 < (r1 / block + 1) * block; r2++) {
+				for (int c1 = 0; c1 < size; c1++) {
+					for (int c2 = (c1 / block + 1) * block; c2 < size; c2++) {
+						if (grid[r1][c1] == grid[r2][c2] && grid[r1][c2] == grid[r2][c1]) {
+							grid[r1][c1] = grid[r1][c2] = grid[r2][c1] = grid[r2][c2] = 0;
+							return true;
+						}
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	private static int[][] parse(final String puzzle) {
+		int size = Sudoku.PUZZLE_SIZE;
+		int[][] matrix = new int[size][size];
+		for (int index = 0; index < size * size; index++) {
+			matrix[index / size][index % size] = puzzle.charAt(index) - '0';
+		}
+		return matrix;
+	}
+
+}
@@ -0,0 +1,208 @@
+package sudoku.logic.symmetry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import sudoku.logic.CompactSudoku;
+import sudoku.logic.Game;
+import sudoku.logic.Sudoku;
+import sudoku.logic.SudokuManager;
+
+/**
+ * the canonical form of a board must not change under any transformation of
+ * the symmetry group, and must tell apart boards which are not equivalent
+ */
+public class CanonicalizerTest {
+
+	private static final int SIZE = Sudoku.PUZZLE_SIZE;
+	private static final int BLOCK = Sudoku.BLOCK_SIZE;
+	private static final int CELLS = CompactSudoku.CELLS;
+
+	private final SudokuManager manager = new SudokuManager();
+	private final Canonicalizer canonicalizer = new Canonicalizer();
+
+	@Test
+	public void puzzlesKeepTheirForm() {
+		SplittableRandom random = new SplittableRandom(17);
+		for (long seed = 1; seed <= 10; seed++) {
+			int[] cells = cellsOf(manager.makeGame(Game.toId(seed, 26)).getPuzzle());
+			this.assertInvariant(cells, random);
+		}
+	}
+
+	@Test
+	public void solutionsKeepTheirForm() {
+		SplittableRandom random = new SplittableRandom(23);
+		for (long seed = 1; seed <= 5; seed++) {
+			int[] cells = cellsOf(new CompactSudoku(manager.generateSudoku(new SplittableRandom(seed))));
+			this.assertInvariant(cells, random);
+		}
+	}
+
+	@Test
+	public void differentPuzzlesHaveDifferentForms() {
+		int[] first = this.canonical(cellsOf(manager.makeGame(Game.toId(1, 26)).getPuzzle()));
+		int[] second = this.canonical(cellsOf(manager.makeGame(Game.toId(2, 26)).getPuzzle()));
+		assertFalse(Arrays.equals(first, second));
+
+		// one more given breaks the equivalence
+		int[] cells = cellsOf(manager.makeGame(Game.toId(1, 26)).getPuzzle());
+		CompactSudoku solution = manager.makeGame(Game.toId(1, 26)).getSolution();
+		int empty = 0;
+		while (cells[empty] != 0) {
+			++empty;
+		}
+		cells[empty] = solution.getValue(empty);
+		assertFalse(Arrays.equals(first, this.canonical(cells)));
+	}
+
+	@Test
+	public void compactFormMatchesCells() {
+		CompactSudoku puzzle = manager.makeGame(Game.toId(3, 26)).getPuzzle();
+		assertArrayEquals(this.canonical(cellsOf(puzzle)), cellsOf(canonicalizer.canonicalize(puzzle)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidValueIsRejected() {
+		int[] cells = new int[CELLS];
+		cells[4] = SIZE + 1;
+		canonicalizer.canonicalize(cells, cells);
+	}
+
+	/**
+	 * applies each transformation alone, then random chains of them, and
+	 * checks the canonical form every time
+	 */
+	private void assertInvariant(final int[] cells, final SplittableRandom random) {
+		int[] expected = this.canonical(cells);
+
+		assertArrayEquals("relabel", expected, this.canonical(relabel(cells, random)));
+		assertArrayEquals("transpose", expected, this.canonical(transpose(cells)));
+		assertArrayEquals("rows", expected, this.canonical(swapRows(cells, random)));
+		assertArrayEquals("bands", expected, this.canonical(swapBands(cells, random)));
+		assertArrayEquals("columns", expected, this.canonical(swapColumns(cells, random)));
+		assertArrayEquals("stacks", expected, this.canonical(swapStacks(cells, random)));
+
+		for (int round = 0; round < 20; round++) {
+			int[] transformed = cells;
+			for (int step = 0; step < 8; step++) {
+				transformed = transform(transformed, random.nextInt(6), random);
+			}
+			assertArrayEquals("chain " + round, expected, this.canonical(transformed));
+		}
+	}
+
+	private int[] canonical(final int[] cells) {
+		int[] canonical = new int[CELLS];
+		canonicalizer.canonicalize(cells, canonical);
+		return canonical;
+	}
+
+	private static int[] transform(final int[] cells, final int kind, final SplittableRandom random) {
+		switch (kind) {
+		case 0:
+			return relabel(cells, random);
+		case 1:
+			return transpose(cells);
+		case 2:
+			return swapRows(cells, random);
+		case 3:
+			return swapBands(cells, random);
+		case 4:
+			return swapColumns(cells, random);
+		default:
+			return swapStacks(cells, random);
+		}
+	}
+
+	static int[] relabel(final int[] cells, final SplittableRandom random) {
+		int[] labels = new int[SIZE + 1];
+		for (int digit = 1; digit <= SIZE; digit++) {
+			labels[digit] = digit;
+		}
+		for (int digit = SIZE; digit > 1; digit--) {
+			int other = 1 + random.nextInt(digit);
+			int swap = labels[digit];
+			labels[digit] = labels[other];
+			labels[other] = swap;
+		}
+
+		int[] result = new int[CELLS];
+		for (int index = 0; index < CELLS; index++) {
+			result[index] = labels[cells[index]];
+		}
+		return result;
+	}
+
+	static int[] transpose(final int[] cells) {
+		int[] result = new int[CELLS];
+		for (int row = 0; row < SIZE; row++) {
+			for (int column = 0; column < SIZE; column++) {
+				result[column * SIZE + row] = cells[row * SIZE + column];
+			}
+		}
+		return result;
+	}
+
+	private static int[] swapRows(final int[] cells, final SplittableRandom random) {
+		int band = random.nextInt(BLOCK);
+		int first = band * BLOCK + random.nextInt(BLOCK);
+		int second = band * BLOCK + (first % BLOCK + 1 + random.nextInt(BLOCK - 1)) % BLOCK;
+		int[] rows = identity();
+		rows[first] = second;
+		rows[second] = first;
+		return permuteRows(cells, rows);
+	}
+
+	static int[] swapBands(final int[] cells, final SplittableRandom random) {
+		int first = random.nextInt(BLOCK);
+		int second = (first + 1 + random.nextInt(BLOCK - 1)) % BLOCK;
+		int[] rows = identity();
+		for (int k = 0; k < BLOCK; k++) {
+			rows[first * BLOCK + k] = second * BLOCK + k;
+			rows[second * BLOCK + k] = first * BLOCK + k;
+		}
+		return permuteRows(cells, rows);
+	}
+
+	private static int[] swapColumns(final int[] cells, final SplittableRandom random) {
+		return transpose(swapRows(transpose(cells), random));
+	}
+
+	private static int[] swapStacks(final int[] cells, final SplittableRandom random) {
+		return transpose(swapBands(transpose(cells), random));
+	}
+
+	/**
+	 * builds the board whose row i is the row rows[i] of cells
+	 */
+	private static int[] permuteRows(final int[] cells, final int[] rows) {
+		int[] result = new int[CELLS];
+		for (int row = 0; row < SIZE; row++) {
+			System.arraycopy(cells, rows[row] * SIZE, result, row * SIZE, SIZE);
+		}
+		return result;
+	}
+
+	private static int[] identity() {
+		int[] rows = new int[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			rows[i] = i;
+		}
+		return rows;
+	}
+
+	static int[] cellsOf(final CompactSudoku sudoku) {
+		int[] cells = new int[CELLS];
+		for (int index = 0; index < CELLS; index++) {
+			cells[index] = sudoku.getValue(index);
+		}
+		return cells;
+	}
+
+}
@@ -0,0 +1,81 @@
+package sudoku.logic.symmetry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import sudoku.logic.CompactSudoku;
+import sudoku.logic.Game;
+import sudoku.logic.Sudoku;
+import sudoku.logic.SudokuManager;
+
+/**
+ * the deduplicator must drop the games equivalent to one already seen and
+ * forward all the others
+ */
+public class DeduplicatorTest {
+
+	private final SudokuManager manager = new SudokuManager();
+	private final List<Game> forwarded = new ArrayList<Game>();
+	private final Deduplicator deduplicator = new Deduplicator(new FingerprintIndex(), new Consumer<Game>() {
+		@Override
+		public void accept(final Game game) {
+			forwarded.add(game);
+		}
+	});
+
+	@Test
+	public void distinctGamesAreKept() {
+		for (long seed = 1; seed <= 20; seed++) {
+			deduplicator.accept(manager.makeGame(Game.toId(seed, 26)));
+		}
+		assertEquals(20, forwarded.size());
+		assertEquals(0, deduplicator.getDuplicates());
+	}
+
+	@Test
+	public void equivalentGamesAreDropped() {
+		SplittableRandom random = new SplittableRandom(31);
+		Game original = manager.makeGame(Game.toId(5, 26));
+		deduplicator.accept(original);
+
+		// the same game again, then transformed copies of it
+		deduplicator.accept(manager.makeGame(Game.toId(5, 26)));
+		int[] cells = CanonicalizerTest.cellsOf(original.getPuzzle());
+		deduplicator.accept(gameOf(CanonicalizerTest.transpose(cells)));
+		deduplicator.accept(gameOf(CanonicalizerTest.relabel(cells, random)));
+		deduplicator.accept(gameOf(CanonicalizerTest.swapBands(CanonicalizerTest.relabel(cells, random), random)));
+
+		assertEquals(1, forwarded.size());
+		assertSame(original, forwarded.get(0));
+		assertEquals(4, deduplicator.getDuplicates());
+	}
+
+	@Test
+	public void mixedGamesKeepOnePerClass() {
+		SplittableRandom random = new SplittableRandom(37);
+		for (long seed = 1; seed <= 5; seed++) {
+			Game game = manager.makeGame(Game.toId(seed, 26));
+			deduplicator.accept(game);
+			deduplicator.accept(gameOf(CanonicalizerTest.relabel(CanonicalizerTest.cellsOf(game.getPuzzle()), random)));
+		}
+		assertEquals(5, forwarded.size());
+		assertEquals(5, deduplicator.getDuplicates());
+	}
+
+	private static Game gameOf(final int[] cells) {
+		int size = Sudoku.PUZZLE_SIZE;
+		int[][] matrix = new int[size][size];
+		for (int index = 0; index < CompactSudoku.CELLS; index++) {
+			matrix[index / size][index % size] = cells[index];
+		}
+		return new Game(0, null, new CompactSudoku(matrix, true), null);
+	}
+
+}
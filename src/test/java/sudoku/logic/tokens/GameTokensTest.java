@@ -0,0 +1,183 @@
+package sudoku.logic.tokens;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Base64;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import sudoku.logic.Game;
+import sudoku.logic.Sudoku;
+import sudoku.logic.SudokuCodec;
+import sudoku.logic.SudokuManager;
+
+/**
+ * tokens must give back the game they were issued for, and only to a node
+ * sharing the secret; altered tokens must be rejected
+ */
+public class GameTokensTest {
+
+	private static final String SECRET = "a secret shared by all the nodes";
+
+	private final SudokuManager manager = new SudokuManager();
+
+	@Test
+	public void tokenGivesBackTheGame() {
+		GameTokens tokens = tokens(SECRET, true);
+		for (long seed = 1; seed <= 5; seed++) {
+			Game game = manager.makeGame(Game.toId(seed, 26));
+			assertRoundTrip(tokens, SudokuCodec.encode(game.getSolution()), game.getPuzzle().toArray());
+		}
+	}
+
+	@Test
+	public void tokenGivesBackGamesOfAnySize() {
+		GameTokens tokens = tokens(SECRET, true);
+		for (int blockSize = Sudoku.MIN_BLOCK_SIZE; blockSize <= Sudoku.MAX_BLOCK_SIZE; blockSize++) {
+			SplittableRandom random = new SplittableRandom(blockSize);
+			Sudoku solution = manager.generateSudoku(blockSize, random);
+			int[][] puzzle = manager.puzzle(solution, blockSize * blockSize * 3, false, random).toArray();
+			assertRoundTrip(tokens, SudokuCodec.encode(solution), puzzle);
+		}
+	}
+
+	@Test
+	public void nodesSharingTheSecretAcceptTokens() {
+		Game game = manager.makeGame(Game.toId(7, 26));
+		String token = tokens(SECRET, true).issue(SudokuCodec.encode(game.getSolution()), game.getPuzzle().toArray());
+
+		GameToken decoded = tokens(SECRET, true).verify(token);
+		assertEquals(SudokuCodec.encode(game.getSolution()), decoded.getSolution());
+		assertInvalid(tokens("another secret for another node", true), token);
+	}
+
+	@Test
+	public void tamperedTokenIsRejected() {
+		GameTokens tokens = tokens(SECRET, true);
+		Game game = manager.makeGame(Game.toId(3, 26));
+		String token = tokens.issue(SudokuCodec.encode(game.getSolution()), game.getPuzzle().toArray());
+		byte[] bytes = Base64.getUrlDecoder().decode(token);
+
+		// every byte but the version, flipping one bit at a time
+		for (int index = 1; index < bytes.length; index++) {
+			for (int bit = 0; bit < 8; bit += 3) {
+				byte[] tampered = bytes.clone();
+				tampered[index] ^= 1 << bit;
+				assertInvalid(tokens, Base64.getUrlEncoder().withoutPadding().encodeToString(tampered));
+			}
+		}
+	}
+
+	@Test
+	public void truncatedTokenIsRejected() {
+		GameTokens tokens = tokens(SECRET, true);
+		Game game = manager.makeGame(Game.toId(4, 26));
+		String token = tokens.issue(SudokuCodec.encode(game.getSolution()), game.getPuzzle().toArray());
+
+		for (int length = 0; length < token.length(); length++) {
+			assertInvalid(tokens, token.substring(0, length));
+		}
+		assertInvalid(tokens, token + "AA");
+		assertInvalid(tokens, token.replace(token.charAt(10), '*'));
+	}
+
+	@Test
+	public void keepsGivensChecksTheGivenCells() {
+		Game game = manager.makeGame(Game.toId(5, 26));
+		int[][] puzzle = game.getPuzzle().toArray();
+		int[][] solution = game.getSolution().toArray();
+		GameToken token = new GameToken(SudokuCodec.encode(game.getSolution()), GameToken.givensOf(puzzle));
+
+		assertTrue(token.keepsGivens(puzzle));
+		assertTrue(token.keepsGivens(solution));
+
+		int row = 0, column = 0;
+		while (puzzle[row][column] == 0) {
+			if (++column == puzzle.length) {
+				column = 0;
+				++row;
+			}
+		}
+		int[][] changed = copy(solution);
+		changed[row][column] = 0;
+		assertFalse(token.keepsGivens(changed));
+		changed[row][column] = solution[row][column] % puzzle.length + 1;
+		assertFalse(token.keepsGivens(changed));
+
+		// the player may fill the other cells with anything
+		int[][] filled = copy(puzzle);
+		for (int[] line : filled) {
+			for (int k = 0; k < line.length; k++) {
+				if (line[k] == 0) {
+					line[k] = 1;
+				}
+			}
+		}
+		assertTrue(token.keepsGivens(filled));
+
+		assertFalse(token.keepsGivens(new int[4][4]));
+		int[][] ragged = copy(puzzle);
+		ragged[8] = new int[3];
+		assertFalse(token.keepsGivens(ragged));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void statelessGamesNeedASecret() {
+		tokens(null, true);
+	}
+
+	@Test
+	public void sessionGamesDrawASecret() {
+		GameTokens tokens = tokens(null, false);
+		Game game = manager.makeGame(Game.toId(6, 26));
+		String token = tokens.issue(SudokuCodec.encode(game.getSolution()), game.getPuzzle().toArray());
+		assertEquals(SudokuCodec.encode(game.getSolution()), tokens.verify(token).getSolution());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shortSecretIsRejected() {
+		new GameTokens().setSecret("too short");
+	}
+
+	private static GameTokens tokens(final String secret, final boolean stateless) {
+		GameTokens tokens = new GameTokens();
+		tokens.setStateless(stateless);
+		if (secret != null) {
+			tokens.setSecret(secret);
+		}
+		tokens.init();
+		return tokens;
+	}
+
+	private static void assertRoundTrip(final GameTokens tokens, final String solution, final int[][] puzzle) {
+		GameToken token = tokens.verify(tokens.issue(solution, puzzle));
+
+		assertEquals(solution, token.getSolution());
+		assertEquals(puzzle.length, token.getSize());
+		assertArrayEquals(GameToken.givensOf(puzzle), token.getGivens());
+		assertTrue(token.keepsGivens(puzzle));
+	}
+
+	private static void assertInvalid(final GameTokens tokens, final String token) {
+		try {
+			tokens.verify(token);
+			fail("accepted " + token);
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private static int[][] copy(final int[][] matrix) {
+		int[][] copy = new int[matrix.length][];
+		for (int i = 0; i < matrix.length; i++) {
+			copy[i] = matrix[i].clone();
+		}
+		return copy;
+	}
+
+}